@@ -0,0 +1,88 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.DatabaseConfig;
+import org.enterprise.DatabaseManager;
+import org.enterprise.EnterpriseRepository;
+import org.enterprise.InMemoryRepository;
+import org.enterprise.Repositories;
+import org.enterprise.SqliteRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Creates a throwaway SQLite file for one benchmark trial, points {@link DatabaseManager} at it and
+ * seeds it with a deterministic org chart: employee {@code i} belongs to department
+ * {@code i % departments}. {@link #use(String)} then installs the backend a trial measures; the
+ * in-memory one starts as a copy of the seeded file, so both see the same ids. The query cache is
+ * off unless a trial asks for it, so reads measure the database.
+ */
+final class BenchmarkDatabase {
+    private BenchmarkDatabase() {
+    }
+    static Path create() throws IOException {
+        return create(0);
+    }
+    static Path create(long queryCacheRows) throws IOException {
+        Path file = Files.createTempFile("enterprise-bench-", ".db");
+        DatabaseConfig config = DatabaseConfig.forFile(file.toString());
+        config.setQueryCacheRows(queryCacheRows);
+        DatabaseManager.configure(config);
+        DatabaseManager.createTables();
+        return file;
+    }
+    static void seed(Path file, int employees, int departments) throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO departments (id, name) VALUES (?, ?)")) {
+                for (int id = 1; id <= departments; id++) {
+                    statement.setInt(1, id);
+                    statement.setString(2, "Department " + id);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement employee = connection.prepareStatement(
+                    "INSERT INTO employees (id, full_name, age, salary) VALUES (?, ?, ?, ?)");
+                 PreparedStatement membership = connection.prepareStatement(
+                         "INSERT INTO employee_department (employee_id, department_id) VALUES (?, ?)")) {
+                for (int id = 1; id <= employees; id++) {
+                    employee.setInt(1, id);
+                    employee.setString(2, "Employee " + id);
+                    employee.setInt(3, 20 + id % 45);
+                    employee.setDouble(4, 30_000 + (id * 7919L) % 170_000);
+                    employee.addBatch();
+                    membership.setInt(1, id);
+                    membership.setInt(2, 1 + id % departments);
+                    membership.addBatch();
+                    if (id % 10_000 == 0) {
+                        employee.executeBatch();
+                        membership.executeBatch();
+                    }
+                }
+                employee.executeBatch();
+                membership.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+    static EnterpriseRepository use(String storage) {
+        EnterpriseRepository repository = "memory".equals(storage)
+                ? InMemoryRepository.copyOf(new SqliteRepository())
+                : new SqliteRepository();
+        Repositories.use(repository);
+        return repository;
+    }
+    static void delete(Path file) throws IOException {
+        Repositories.use(null);
+        DatabaseManager.shutdown();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+    }
+}
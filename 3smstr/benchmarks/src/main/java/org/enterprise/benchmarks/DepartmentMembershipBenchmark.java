@@ -0,0 +1,72 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adding, removing and moving members through a new instance carrying the member's id, as code
+ * working from a fresh database read does. With {@code unsavedMembers} the department also holds
+ * employees that have no id yet; the cost of each call must not grow with the department.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepartmentMembershipBenchmark {
+    @Param({"10000", "1000000"})
+    public int departmentSize;
+
+    @Param({"0", "1"})
+    public int unsavedMembers;
+
+    private Department department;
+    private Department target;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        department = new Department("Department");
+        target = new Department("Target");
+        for (int id = 1; id <= departmentSize; id++) {
+            Employee employee = new Employee("Employee " + id, 20 + id % 45, 30_000 + (id * 7919L) % 170_000);
+            employee.setId(id);
+            department.addEmployee(employee);
+        }
+        for (int i = 0; i < unsavedMembers; i++) {
+            department.addEmployee(new Employee("Unsaved " + i, 30, 50_000));
+        }
+    }
+    @Benchmark
+    public void removeAndAddByNewInstance() {
+        Employee copy = nextCopy();
+        department.removeEmployee(copy);
+        department.addEmployee(copy);
+    }
+    @Benchmark
+    public boolean moveByNewInstance() {
+        Employee copy = nextCopy();
+        department.moveEmployeeTo(copy, target);
+        return target.moveEmployeeTo(copy, department);
+    }
+    private Employee nextCopy() {
+        int id = 1 + next++ % departmentSize;
+        Employee copy = new Employee("Employee " + id, 20 + id % 45, 30_000 + (id * 7919L) % 170_000);
+        copy.setId(id);
+        return copy;
+    }
+}
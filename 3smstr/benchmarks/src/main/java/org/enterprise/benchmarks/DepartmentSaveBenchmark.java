@@ -0,0 +1,56 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.EnterpriseRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class DepartmentSaveBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int departmentSize;
+
+    @Param({"sqlite", "memory"})
+    public String storage;
+
+    private Path database;
+    private EnterpriseRepository repository;
+    private Department department;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(database, departmentSize, 1);
+        repository = BenchmarkDatabase.use(storage);
+        department = new Department("Department 1");
+        department.setId(1);
+        department.setEmployees(repository.loadDepartmentEmployees(department));
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.delete(database);
+    }
+    @Benchmark
+    public void saveToDatabase() {
+        department.saveToDatabase();
+    }
+}
@@ -0,0 +1,48 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainModelBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int departmentSize;
+
+    private Department department;
+
+    @Setup
+    public void setUp() {
+        department = new Department("Department");
+        for (int id = 1; id <= departmentSize; id++) {
+            Employee employee = new Employee("Employee " + id, 20 + id % 45, 30_000 + (id * 7919L) % 170_000);
+            employee.setId(id);
+            department.addEmployee(employee);
+        }
+    }
+    @Benchmark
+    public double calculateTotalSalary() {
+        return department.calculateTotalSalary();
+    }
+    @Benchmark
+    public String getFormattedEmployeeList() {
+        return department.getFormattedEmployeeList();
+    }
+}
@@ -0,0 +1,80 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.EmployeeColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans over an {@link EmployeeColumns} snapshot, as behind {@code GET /api/analytics}. The snapshot
+ * is loaded once per trial; only the in-memory filters, sums, age bands and top-N are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmployeeColumnsBenchmark {
+    private static final int DEPARTMENTS = 20;
+
+    @Param({"100000", "1000000"})
+    public int employees;
+
+    @Param({"10", "1000"})
+    public int top;
+
+    private Path database;
+    private EmployeeColumns columns;
+    private BitSet departmentRows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(database, employees, DEPARTMENTS);
+        columns = EmployeeColumns.load(BenchmarkDatabase.use("sqlite"));
+        departmentRows = columns.departmentBitmap(1);
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.delete(database);
+    }
+    @Benchmark
+    public double sumSalary() {
+        return columns.sumSalary();
+    }
+    @Benchmark
+    public double sumDepartmentSalary() {
+        return columns.sumSalary(departmentRows);
+    }
+    @Benchmark
+    public BitSet filterAgeBetween() {
+        return columns.filterAgeBetween(30, 45);
+    }
+    @Benchmark
+    public BitSet filterSalaryBetween() {
+        return columns.filterSalaryBetween(50_000, 120_000);
+    }
+    @Benchmark
+    public double[] salaryByAgeBand() {
+        return columns.salaryByAgeBand(10);
+    }
+    @Benchmark
+    public int[] topEarners() {
+        return columns.topEarners(top);
+    }
+}
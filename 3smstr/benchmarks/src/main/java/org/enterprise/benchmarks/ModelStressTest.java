@@ -0,0 +1,252 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.enterprise.Enterprise;
+import org.enterprise.SalaryStatistics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test for the in-memory model. First, writer threads raise salaries by one and move
+ * employees between departments while reader threads walk department snapshots and check that
+ * every employee belongs to exactly one department at every moment; afterwards the department and
+ * enterprise aggregates must match a recount and the payroll must have grown by exactly the number
+ * of raises. A new employee whose save is rolled back and retried under another id must end up
+ * indexed and counted once. Then reader threads alone measure read throughput for a rising number of threads;
+ * the speedup column is relative to one reader.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar org.enterprise.benchmarks.ModelStressTest [employees] [departments] [seconds]}.
+ * Exits with status 1 if any check fails.
+ */
+public final class ModelStressTest {
+    private ModelStressTest() {
+    }
+    public static void main(String[] args) throws InterruptedException {
+        int employees = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int departments = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Enterprise enterprise = new Enterprise();
+        for (int id = 1; id <= departments; id++) {
+            Department department = new Department("Department " + id);
+            department.setId(id);
+            enterprise.addDepartment(department);
+        }
+        List<Department> created = enterprise.getDepartments();
+        Employee[] staff = new Employee[employees];
+        for (int id = 1; id <= employees; id++) {
+            Employee employee = new Employee("Employee " + id, 20 + id % 45, 30_000 + id % 1_000);
+            employee.setId(id);
+            staff[id - 1] = employee;
+            created.get(id % departments).addEmployee(employee);
+        }
+        BigDecimal initialPayroll = enterprise.getSalaryStatistics().getSum();
+        System.out.printf("%,d employees, %d departments, %d cores, %d s per step%n", employees, departments, cores, seconds);
+
+        int writers = Math.max(2, cores);
+        int readers = Math.max(2, cores);
+        LongAdder raises = new LongAdder();
+        LongAdder moves = new LongAdder();
+        LongAdder reads = new LongAdder();
+        LongAdder violations = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            int writer = i;
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    // Each writer owns the employees with index % writers == writer, so a raise is never contended.
+                    int index = random.nextInt(employees / writers) * writers + writer;
+                    if (index >= employees) {
+                        continue;
+                    }
+                    Employee employee = staff[index];
+                    if (random.nextBoolean()) {
+                        employee.setSalary(employee.getSalary() + 1);
+                        raises.increment();
+                    } else {
+                        Set<Department> current = enterprise.getDepartmentsOf(employee);
+                        if (current.size() != 1) {
+                            violations.increment();
+                            continue;
+                        }
+                        Department target = created.get(random.nextInt(departments));
+                        if (!current.iterator().next().moveEmployeeTo(employee, target)) {
+                            violations.increment();
+                        }
+                        moves.increment();
+                    }
+                }
+            }, "model-writer-" + i));
+        }
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    Department department = created.get(random.nextInt(departments));
+                    List<Employee> members = department.getEmployees();
+                    Set<Employee> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                    for (Employee member : members) {
+                        if (!seen.add(member)) {
+                            violations.increment();
+                        }
+                    }
+                    Employee employee = staff[random.nextInt(employees)];
+                    if (enterprise.getDepartmentsOf(employee).size() != 1) {
+                        violations.increment();
+                    }
+                    reads.increment();
+                }
+            }, "model-reader-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.printf("%d writers, %d readers: %,d raises, %,d moves, %,d reads, %d violations during the run%n",
+                writers, readers, raises.sum(), moves.sum(), reads.sum(), violations.sum());
+
+        int failures = (int) Math.min(Integer.MAX_VALUE, violations.sum());
+        failures += verify(enterprise, staff, initialPayroll.add(BigDecimal.valueOf(raises.sum())));
+        failures += verifyRolledBackSave(enterprise, staff.length);
+
+        System.out.println("readers     reads/s  speedup  efficiency");
+        double baseline = 0;
+        for (int count : concurrencyLevels(cores)) {
+            double throughput = readThroughput(enterprise, staff, count, seconds);
+            if (baseline == 0) {
+                baseline = throughput;
+            }
+            double speedup = throughput / baseline;
+            System.out.printf("%7d %11.0f %8.2f %11.2f%n", count, throughput, speedup, speedup / Math.min(count, cores));
+        }
+        if (failures > 0) {
+            System.out.println("FAILED: " + failures + " checks failed");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+    private static int verify(Enterprise enterprise, Employee[] staff, BigDecimal expectedPayroll) {
+        int failures = 0;
+        long memberships = 0;
+        for (Department department : enterprise.getDepartments()) {
+            List<Employee> members = department.getEmployees();
+            memberships += members.size();
+            BigDecimal sum = BigDecimal.ZERO;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (Employee employee : members) {
+                sum = sum.add(BigDecimal.valueOf(employee.getSalary()));
+                min = Math.min(min, employee.getSalary());
+                max = Math.max(max, employee.getSalary());
+            }
+            SalaryStatistics statistics = department.getSalaryStatistics();
+            if (statistics.getCount() != members.size() || statistics.getSum().compareTo(sum) != 0
+                    || !members.isEmpty() && (statistics.getMin() != min || statistics.getMax() != max)) {
+                System.out.println("Aggregates of " + department.getName() + " do not match its members: " + statistics);
+                failures++;
+            }
+        }
+        if (memberships != staff.length) {
+            System.out.println("Memberships: " + memberships + ", expected " + staff.length);
+            failures++;
+        }
+        for (Employee employee : staff) {
+            Set<Department> departments = enterprise.getDepartmentsOf(employee);
+            if (departments.size() != 1 || !departments.iterator().next().containsEmployee(employee)) {
+                System.out.println("Employee " + employee.getId() + " is indexed in " + departments);
+                failures++;
+            }
+        }
+        SalaryStatistics total = enterprise.getSalaryStatistics();
+        if (total.getCount() != staff.length || total.getSum().compareTo(expectedPayroll) != 0) {
+            System.out.println("Payroll " + total.getSum() + " for " + total.getCount() + " employees, expected "
+                    + expectedPayroll + " for " + staff.length + ": updates were lost");
+            failures++;
+        }
+        return failures;
+    }
+    /**
+     * Gives a new member of two departments an id, takes it back as a failed flush does, and saves it
+     * again under another id; the enterprise must know it under the last id only and count it once.
+     */
+    private static int verifyRolledBackSave(Enterprise enterprise, int employees) {
+        int failures = 0;
+        List<Department> departments = enterprise.getDepartments();
+        SalaryStatistics total = enterprise.getSalaryStatistics();
+        long count = total.getCount();
+        BigDecimal payroll = total.getSum();
+        Employee employee = new Employee("Rolled Back", 30, 12_345);
+        departments.get(0).addEmployee(employee);
+        departments.get(1).addEmployee(employee);
+        employee.setId(employees + 1);
+        employee.setId(0);
+        employee.setId(employees + 2);
+        if (enterprise.findEmployeeById(employees + 1) != null || enterprise.findEmployeeById(employees + 2) != employee) {
+            System.out.println("Employee saved after a rollback is indexed under the wrong id");
+            failures++;
+        }
+        if (enterprise.getDepartmentsOf(employee).size() != 2) {
+            System.out.println("Employee saved after a rollback is in " + enterprise.getDepartmentsOf(employee));
+            failures++;
+        }
+        if (total.getCount() != count + 1 || total.getSum().compareTo(payroll.add(BigDecimal.valueOf(12_345))) != 0) {
+            System.out.println("Employee saved after a rollback is counted " + (total.getCount() - count) + " times in the payroll");
+            failures++;
+        }
+        departments.get(0).removeEmployee(employee);
+        departments.get(1).removeEmployee(employee);
+        if (total.getCount() != count || total.getSum().compareTo(payroll) != 0) {
+            System.out.println("Payroll keeps the employee saved after a rollback once it left: " + total);
+            failures++;
+        }
+        return failures;
+    }
+    private static double readThroughput(Enterprise enterprise, Employee[] staff, int readers, int seconds) throws InterruptedException {
+        List<Department> departments = enterprise.getDepartments();
+        LongAdder reads = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    Department department = departments.get(random.nextInt(departments.size()));
+                    department.getEmployees();
+                    department.getSalaryStatistics().getSum();
+                    enterprise.getDepartmentsOf(enterprise.findEmployeeById(staff[random.nextInt(staff.length)].getId()));
+                    count++;
+                }
+                reads.add(count);
+            }, "model-read-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return reads.sum() / (double) seconds;
+    }
+    private static List<Integer> concurrencyLevels(int cores) {
+        TreeSet<Integer> levels = new TreeSet<>();
+        for (int readers = 1; readers <= cores * 2; readers *= 2) {
+            levels.add(readers);
+        }
+        levels.add(cores);
+        return new ArrayList<>(levels);
+    }
+}
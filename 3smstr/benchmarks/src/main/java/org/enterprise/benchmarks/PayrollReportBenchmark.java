@@ -0,0 +1,65 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.enterprise.Enterprise;
+import org.enterprise.PayrollReportEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Org-wide payroll report over 1M employees in 100 departments, computed on all cores and in one
+ * thread; the model is captured once, as the GUI does before handing the work off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class PayrollReportBenchmark {
+    @Param({"PARALLEL", "SEQUENTIAL"})
+    public PayrollReportEngine.Mode mode;
+
+    @Param({"1000000"})
+    public int employees;
+
+    @Param({"100"})
+    public int departments;
+
+    private PayrollReportEngine engine;
+    private PayrollReportEngine.Data data;
+
+    @Setup
+    public void setUp() {
+        Enterprise enterprise = new Enterprise();
+        Department[] created = new Department[departments];
+        for (int i = 0; i < departments; i++) {
+            created[i] = new Department("Department " + i);
+            created[i].setId(i + 1);
+            enterprise.addDepartment(created[i]);
+        }
+        for (int id = 1; id <= employees; id++) {
+            Employee employee = new Employee("Employee " + id, 18 + id % 50, 30_000 + (id * 7919L) % 170_000);
+            employee.setId(id);
+            created[id % departments].addEmployee(employee);
+        }
+        engine = new PayrollReportEngine(mode);
+        data = PayrollReportEngine.capture(enterprise);
+    }
+    @Benchmark
+    public String renderReport() {
+        return engine.compute(data).render();
+    }
+}
@@ -0,0 +1,73 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.enterprise.Enterprise;
+import org.enterprise.EnterpriseLoader;
+import org.enterprise.EnterpriseRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PersistenceReadBenchmark {
+    private static final int DEPARTMENTS = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int employees;
+
+    @Param({"sqlite", "memory"})
+    public String storage;
+
+    // Rows the query cache may hold; 0 reads from the database on every call.
+    @Param({"0", "1000000"})
+    public long queryCacheRows;
+
+    private Path database;
+    private EnterpriseRepository repository;
+    private Department department;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create(queryCacheRows);
+        BenchmarkDatabase.seed(database, employees, DEPARTMENTS);
+        repository = BenchmarkDatabase.use(storage);
+        department = new Department("Department 1");
+        department.setId(1);
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.delete(database);
+    }
+    @Benchmark
+    public List<Employee> loadAllEmployees() {
+        return repository.loadAllEmployees();
+    }
+    @Benchmark
+    public List<Employee> loadDepartmentEmployees() {
+        return repository.loadDepartmentEmployees(department);
+    }
+    @Benchmark
+    public EnterpriseLoader.Result loadEnterprise() throws Exception {
+        return repository.loadEnterprise(new Enterprise());
+    }
+}
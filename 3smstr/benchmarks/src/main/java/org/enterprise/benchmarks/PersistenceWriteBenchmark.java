@@ -0,0 +1,71 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.Employee;
+import org.enterprise.EnterpriseRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceWriteBenchmark {
+    private static final int EMPLOYEES = 1_000;
+    private static final int DEPARTMENTS = 10;
+
+    @Param({"sqlite", "memory"})
+    public String storage;
+
+    private Path database;
+    private EnterpriseRepository repository;
+    private int next;
+
+    /**
+     * An employee saved before each call and not yet in any department, so that every measured
+     * {@code saveEmployeeDepartment} inserts a row rather than ignoring a pair that already exists.
+     */
+    @State(Scope.Thread)
+    public static class NewEmployee {
+        int id;
+
+        @Setup(Level.Invocation)
+        public void setUp(PersistenceWriteBenchmark benchmark) {
+            id = benchmark.repository.saveEmployee(new Employee("Benchmark Employee", 30, 50_000));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(database, EMPLOYEES, DEPARTMENTS);
+        repository = BenchmarkDatabase.use(storage);
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.delete(database);
+    }
+    @Benchmark
+    public int saveEmployee() {
+        return repository.saveEmployee(new Employee("Benchmark Employee", 30, 50_000));
+    }
+    @Benchmark
+    public void saveEmployeeDepartment(NewEmployee employee) {
+        repository.saveEmployeeDepartment(employee.id, 1 + next++ % DEPARTMENTS);
+    }
+}
@@ -0,0 +1,149 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.DatabaseConfig;
+import org.enterprise.DatabaseManager;
+import org.enterprise.DatasetGenerator;
+import org.enterprise.Department;
+import org.enterprise.Employee;
+import org.enterprise.Enterprise;
+import org.enterprise.Repositories;
+import org.enterprise.SqliteRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Scaling regression suite. For 1,000 employees and every 10x step up to the given maximum it
+ * generates a database with {@link DatasetGenerator} and times the startup load of the model, a
+ * listing of all employees, a fixed batch of lookups by id and the save of one department, taking
+ * the best of a few repetitions. Departments stay at a fixed count, so a department grows with the
+ * data. Each operation has an expected growth per 10x step: linear for load, listing and save,
+ * flat for lookups. A step that grows faster than that by more than {@code 10^0.25} is flagged as
+ * super-linear.
+ * <p>
+ * Run with {@code java -Xmx8g -cp target/benchmarks.jar org.enterprise.benchmarks.ScalingSuite [max employees] [departments] [repetitions]};
+ * the default maximum is 10,000,000. Exits with status 1 if any step is flagged.
+ */
+public final class ScalingSuite {
+    private static final int LOOKUPS = 1_000;
+    private static final double TOLERANCE = 0.25;
+    // Times below this are mostly noise; growth is measured from at least this much.
+    private static final double NOISE_FLOOR_MILLIS = 5;
+    private static final String[] OPERATIONS = {"load", "listing", "lookup x" + LOOKUPS, "department save"};
+    private static final double[] EXPECTED_EXPONENTS = {1, 1, 0, 1};
+
+    private ScalingSuite() {
+    }
+    public static void main(String[] args) throws IOException, SQLException {
+        long maxEmployees = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int departments = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        System.setProperty("enterprise.snapshot", "");
+
+        System.out.printf("%d departments, best of %d, max heap %,d MB%n", departments, repetitions,
+                Runtime.getRuntime().maxMemory() >> 20);
+        System.out.printf("%12s %12s %12s %12s %14s %16s%n", "employees", "generate ms", "load ms", "listing ms",
+                "lookup x" + LOOKUPS + " ms", "department save ms");
+        List<Long> sizes = new ArrayList<>();
+        List<double[]> timings = new ArrayList<>();
+        for (long employees = 1_000; employees <= maxEmployees; employees *= 10) {
+            Path directory = Files.createTempDirectory("enterprise-scaling-");
+            Path file = directory.resolve("enterprise.db");
+            try {
+                DatasetGenerator generator = new DatasetGenerator();
+                generator.setEmployees(employees);
+                generator.setDepartments(departments);
+                DatasetGenerator.Result generated = generator.generate(file);
+                double[] millis = measure(file, (int) employees, repetitions);
+                sizes.add(employees);
+                timings.add(millis);
+                System.out.printf("%,12d %12d %12.1f %12.1f %14.1f %16.1f%n", employees, generated.getElapsedMillis(),
+                        millis[0], millis[1], millis[2], millis[3]);
+            } finally {
+                Repositories.use(null);
+                DatabaseManager.shutdown();
+                for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                    Files.deleteIfExists(Path.of(file + suffix));
+                }
+                Files.deleteIfExists(directory);
+            }
+        }
+
+        int flagged = 0;
+        for (int step = 1; step < sizes.size(); step++) {
+            double scale = Math.log10((double) sizes.get(step) / sizes.get(step - 1));
+            for (int operation = 0; operation < OPERATIONS.length; operation++) {
+                double before = Math.max(NOISE_FLOOR_MILLIS, timings.get(step - 1)[operation]);
+                double after = timings.get(step)[operation];
+                double exponent = Math.log10(after / before) / scale;
+                if (after > NOISE_FLOOR_MILLIS && exponent > EXPECTED_EXPONENTS[operation] + TOLERANCE) {
+                    System.out.printf("SUPER-LINEAR: %s %,d -> %,d employees grew %.1fx (exponent %.2f, expected %.0f)%n",
+                            OPERATIONS[operation], sizes.get(step - 1), sizes.get(step), after / before, exponent,
+                            EXPECTED_EXPONENTS[operation]);
+                    flagged++;
+                }
+            }
+        }
+        if (flagged > 0) {
+            System.exit(1);
+        }
+        System.out.println("OK: no super-linear growth");
+    }
+    private static double[] measure(Path file, int employees, int repetitions) {
+        DatabaseManager.configure(DatabaseConfig.forFile(file.toString()));
+        SqliteRepository repository = new SqliteRepository();
+        Repositories.use(repository);
+        repository.initialize();
+
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        SplittableRandom random = new SplittableRandom(1);
+        for (int repetition = 0; repetition < repetitions; repetition++) {
+            long start = System.nanoTime();
+            Enterprise enterprise = new Enterprise();
+            try {
+                repository.loadEnterprise(enterprise);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Load failed", e);
+            }
+            best[0] = Math.min(best[0], elapsedMillis(start));
+
+            start = System.nanoTime();
+            long[] rows = new long[1];
+            repository.scanEmployees((id, fullName, age, salary) -> rows[0]++);
+            best[1] = Math.min(best[1], elapsedMillis(start));
+            if (rows[0] != employees) {
+                throw new IllegalStateException("Listed " + rows[0] + " employees, expected " + employees);
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (repository.loadEmployee(1 + random.nextInt(employees)) == null) {
+                    throw new IllegalStateException("Lookup found no employee");
+                }
+            }
+            best[2] = Math.min(best[2], elapsedMillis(start));
+
+            // Swap one member for an outsider, as an edit in the GUI would, and write the department back.
+            Department department = enterprise.getDepartments().get(0);
+            Employee outsider = enterprise.findEmployeeById(1 + random.nextInt(employees));
+            if (outsider != null && !department.containsEmployee(outsider)) {
+                department.removeEmployee(department.getEmployees().get(0));
+                department.addEmployee(outsider);
+            }
+            start = System.nanoTime();
+            if (!repository.saveDepartmentMembers(department, department.getEmployees())) {
+                throw new IllegalStateException("Department save failed");
+            }
+            best[3] = Math.min(best[3], elapsedMillis(start));
+        }
+        return best;
+    }
+    private static double elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
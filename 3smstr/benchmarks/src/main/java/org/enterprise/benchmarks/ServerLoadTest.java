@@ -0,0 +1,138 @@
+package org.enterprise.benchmarks;
+
+import org.enterprise.DatabaseConfig;
+import org.enterprise.DatabaseManager;
+import org.enterprise.EnterpriseRepository;
+import org.enterprise.EnterpriseServer;
+import org.enterprise.LatencyHistogram;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent load test for {@link EnterpriseServer}. Seeds a temporary database, starts the server
+ * on an ephemeral loopback port and, for a rising number of client threads, measures throughput and
+ * latency over a mix of employee lookups, employee pages and department totals. The speedup column
+ * is relative to one client; efficiency divides it by the number of cores the clients can use.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar org.enterprise.benchmarks.ServerLoadTest [employees] [seconds] [sqlite|memory]}.
+ * Clients run in the same JVM as the server, so the numbers are a lower bound for a separate client.
+ */
+public final class ServerLoadTest {
+    private static final int DEPARTMENTS = 50;
+
+    private ServerLoadTest() {
+    }
+    public static void main(String[] args) throws Exception {
+        int employees = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String storage = args.length > 2 ? args[2] : "sqlite";
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path database = BenchmarkDatabase.create();
+        EnterpriseServer server = null;
+        try {
+            BenchmarkDatabase.seed(database, employees, DEPARTMENTS);
+            DatabaseConfig config = DatabaseConfig.forFile(database.toString());
+            config.setPoolSize(Math.max(config.getPoolSize(), cores));
+            DatabaseManager.configure(config);
+            EnterpriseRepository repository = BenchmarkDatabase.use(storage);
+
+            server = new EnterpriseServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), repository);
+            server.start();
+            String baseUrl = "http://localhost:" + server.getPort() + "/api/";
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            System.out.printf("%,d employees, %d departments, %s storage, %d cores, connection pool %d, %d s per step%n",
+                    employees, DEPARTMENTS, storage, cores, config.getPoolSize(), seconds);
+            run(client, baseUrl, employees, cores, Math.min(seconds, 2));
+
+            System.out.println("clients      req/s  speedup  efficiency   p50 ms   p99 ms  errors");
+            double baseline = 0;
+            for (int clients : concurrencyLevels(cores)) {
+                Step step = run(client, baseUrl, employees, clients, seconds);
+                if (baseline == 0) {
+                    baseline = step.throughput;
+                }
+                double speedup = step.throughput / baseline;
+                System.out.printf("%7d %10.0f %8.2f %11.2f %8.2f %8.2f %7d%n", clients, step.throughput, speedup,
+                        speedup / Math.min(clients, cores), step.latency.getPercentileNanos(50) / 1e6,
+                        step.latency.getPercentileNanos(99) / 1e6, step.errors);
+            }
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+            BenchmarkDatabase.delete(database);
+        }
+    }
+    private static List<Integer> concurrencyLevels(int cores) {
+        TreeSet<Integer> levels = new TreeSet<>();
+        for (int clients = 1; clients <= cores * 4; clients *= 2) {
+            levels.add(clients);
+        }
+        levels.add(cores);
+        return new ArrayList<>(levels);
+    }
+    private static Step run(HttpClient client, String baseUrl, int employees, int clients, int seconds) throws InterruptedException {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + nextPath(random, employees))).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    } catch (Exception e) {
+                        errors.increment();
+                    }
+                    latency.record(System.nanoTime() - start);
+                }
+            }, "load-client-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Step(latency.getCount() / (double) seconds, latency, errors.sum());
+    }
+    private static String nextPath(ThreadLocalRandom random, int employees) {
+        int dice = random.nextInt(100);
+        if (dice < 80) {
+            return "employees/" + (1 + random.nextInt(employees));
+        } else if (dice < 95) {
+            return "employees?limit=50&afterId=" + random.nextInt(employees);
+        }
+        return "departments/" + (1 + random.nextInt(DEPARTMENTS));
+    }
+
+    private static final class Step {
+        final double throughput;
+        final LatencyHistogram latency;
+        final long errors;
+
+        Step(double throughput, LatencyHistogram latency, long errors) {
+            this.throughput = throughput;
+            this.latency = latency;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.enterprise;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link EnterpriseRepository} calls on a small bounded pool of daemon threads and exposes them
+ * as {@link CompletableFuture}s, so the Swing event dispatch thread never waits on storage.
+ */
+public class AsyncDatabase {
+    private static final int THREADS = Integer.getInteger("enterprise.async.threads",
+            DatabaseConfig.fromSystemProperties().getPoolSize());
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "db-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public static <T> CompletableFuture<T> supply(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+    public static CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, EXECUTOR);
+    }
+    public static CompletableFuture<EnterpriseLoader.Result> loadEnterprise(Enterprise enterprise) {
+        return supply(() -> Repositories.get().loadEnterprise(enterprise));
+    }
+    public static CompletableFuture<ChangeTracker.Delta> readChanges(long afterSequence) {
+        return supply(() -> Repositories.get().readChanges(afterSequence));
+    }
+    public static CompletableFuture<List<Employee>> loadAllEmployees() {
+        return supply(() -> Repositories.get().loadAllEmployees());
+    }
+    public static CompletableFuture<Employee> loadEmployee(int employeeId) {
+        return supply(() -> Repositories.get().loadEmployee(employeeId));
+    }
+    public static CompletableFuture<List<Employee>> searchEmployees(String text, int limit) {
+        return supply(() -> Repositories.get().searchEmployees(text, limit));
+    }
+    public static CompletableFuture<Integer> saveEmployee(Employee employee) {
+        return supply(() -> Repositories.get().saveEmployee(employee));
+    }
+    public static CompletableFuture<Void> updateEmployee(Employee employee) {
+        return run(() -> Repositories.get().updateEmployee(employee));
+    }
+    public static CompletableFuture<Void> removeEmployee(Employee employee) {
+        return run(() -> Repositories.get().removeEmployee(employee));
+    }
+    public static CompletableFuture<Void> removeDepartment(Department department) {
+        return run(() -> Repositories.get().removeDepartment(department));
+    }
+    public static CompletableFuture<Boolean> saveDepartmentMembers(Department department, List<Employee> employees) {
+        return supply(() -> Repositories.get().saveDepartmentMembers(department, employees));
+    }
+    /**
+     * Reads the department id when the task runs, so it may follow a flush that assigns the id.
+     */
+    public static CompletableFuture<SalaryUpdate> raiseSalaries(Department department, double percent, double amount) {
+        return supply(() -> Repositories.get().raiseSalaries(department.getId(), percent, amount));
+    }
+    public static CompletableFuture<SalaryUpdate> clampSalaries(int minAge, int maxAge, double floor, double cap) {
+        return supply(() -> Repositories.get().clampSalaries(minAge, maxAge, floor, cap));
+    }
+    public static CompletableFuture<Boolean> moveDepartmentMembers(Department from, Department to) {
+        return supply(() -> Repositories.get().moveDepartmentMembers(from.getId(), to.getId()));
+    }
+    public static CompletableFuture<Boolean> applyChanges(UnitOfWork.ChangeSet changes) {
+        return supply(() -> Repositories.get().applyChanges(changes));
+    }
+}
@@ -0,0 +1,392 @@
+package org.enterprise;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps an {@link Enterprise} loaded in one process in step with edits made by other processes
+ * sharing the database. Triggers move the id of every changed employee and department, and of every
+ * department whose members changed, to the end of {@code change_log}, so the log holds one entry per
+ * changed object; {@link #readChanges(long)} reads the entries after the last one seen together with
+ * the current rows they point at, in one read transaction, and {@link #apply(Enterprise, Delta)}
+ * updates only those objects. A timer started with the connection pool prunes the log.
+ * <p>
+ * Applying a delta marks nothing dirty. Fields, names and memberships with unsaved local edits are
+ * left alone, so the local edit wins when it is flushed.
+ */
+public class ChangeTracker {
+    public static class Delta {
+        private final long sequence;
+        private final boolean fullReloadRequired;
+        final Map<Integer, Employee> employees = new HashMap<>();
+        final Set<Integer> updatedEmployees = new LinkedHashSet<>();
+        final Map<Integer, String> departments = new HashMap<>();
+        final Set<Integer> changedDepartments = new LinkedHashSet<>();
+        // Current member ids of every department whose members changed.
+        final Map<Integer, Set<Integer>> departmentMembers = new HashMap<>();
+
+        Delta(long sequence, boolean fullReloadRequired) {
+            this.sequence = sequence;
+            this.fullReloadRequired = fullReloadRequired;
+        }
+        /**
+         * Returns the last change log entry covered by this delta.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+        /**
+         * Returns true if the entries since the last poll were pruned or are too many to apply one by
+         * one; the caller should load the whole enterprise again.
+         */
+        public boolean isFullReloadRequired() {
+            return fullReloadRequired;
+        }
+        public boolean isEmpty() {
+            return updatedEmployees.isEmpty() && changedDepartments.isEmpty() && departmentMembers.isEmpty();
+        }
+        @Override
+        public String toString() {
+            return "Изменения из базы: сотрудников: " + updatedEmployees.size() + ", отделов: " + changedDepartments.size() +
+                    ", отделов со сменой состава: " + departmentMembers.size();
+        }
+    }
+
+    // Kinds written by the change_log triggers of schema version 8.
+    private static final int EMPLOYEE = 1;
+    private static final int DEPARTMENT = 2;
+    private static final int DEPARTMENT_MEMBERS = 4;
+    private static final int MAX_CHANGES = Integer.getInteger("enterprise.refresh.maxChanges", 50_000);
+    private static final int RETAINED_CHANGES = Integer.getInteger("enterprise.changeLog.retain", 100_000);
+    private static final long PRUNE_INTERVAL_SECONDS = Long.getLong("enterprise.changeLog.pruneIntervalSeconds", 60);
+    private static final OperationMetrics READ_CHANGES = DatabaseMetrics.operation("readChanges");
+    private static final OperationMetrics PRUNE_CHANGE_LOG = DatabaseMetrics.operation("pruneChangeLog");
+    private static ScheduledExecutorService pruner;
+
+    /**
+     * Returns the last change log entry; a model loaded after this call reflects at least this entry.
+     * Read from sqlite_sequence, since coalescing may have deleted the entry with that number.
+     */
+    static long currentSequence(Statement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(
+                "SELECT coalesce((SELECT seq FROM sqlite_sequence WHERE name = 'change_log'), 0)")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+    public static Delta readChanges(long afterSequence) throws SQLException {
+        OperationMetrics.Timer timer = READ_CHANGES.start();
+        Delta delta;
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long latest;
+                long pruned;
+                try (Statement statement = connection.createStatement()) {
+                    latest = currentSequence(statement);
+                    try (ResultSet resultSet = statement.executeQuery("SELECT seq FROM change_log_pruned")) {
+                        pruned = resultSet.next() ? resultSet.getLong(1) : 0;
+                    }
+                }
+                if (latest <= afterSequence) {
+                    connection.commit();
+                    return new Delta(afterSequence, false);
+                }
+                if (pruned > afterSequence || countEntries(connection, afterSequence) > MAX_CHANGES) {
+                    connection.commit();
+                    DatabaseManager.getQueryCache().clear();
+                    return new Delta(latest, true);
+                }
+                delta = new Delta(latest, false);
+                int rows = readLog(connection, afterSequence, latest, delta);
+                rows += readEmployees(connection, delta);
+                rows += readDepartments(connection, delta);
+                rows += readDepartmentMembers(connection, delta);
+                connection.commit();
+                timer.rowsRead(rows);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+        invalidate(delta);
+        return delta;
+    }
+    /**
+     * Applies a delta read by {@link #readChanges(long)} to the model. Must run on the thread that
+     * edits the model.
+     */
+    public static void apply(Enterprise enterprise, Delta delta) {
+        for (int departmentId : delta.changedDepartments) {
+            String name = delta.departments.get(departmentId);
+            if (name == null) {
+                continue;
+            }
+            Department department = enterprise.findDepartmentById(departmentId);
+            if (department == null) {
+                department = new Department(name);
+                department.setId(departmentId);
+                enterprise.addDepartment(department);
+            } else {
+                department.applyStoredName(name);
+            }
+        }
+
+        for (int employeeId : delta.updatedEmployees) {
+            Employee employee = enterprise.findEmployeeById(employeeId);
+            if (employee == null) {
+                continue;
+            }
+            Employee stored = delta.employees.get(employeeId);
+            if (stored == null) {
+                for (Department department : new ArrayList<>(enterprise.getDepartmentsOf(employee))) {
+                    department.detachEmployee(employee);
+                }
+            } else {
+                employee.applyStoredValues(stored.getFullName(), stored.getAge(), stored.getSalary());
+            }
+        }
+
+        for (Map.Entry<Integer, Set<Integer>> entry : delta.departmentMembers.entrySet()) {
+            Department department = enterprise.findDepartmentById(entry.getKey());
+            if (department == null) {
+                continue;
+            }
+            Set<Integer> memberIds = entry.getValue();
+            Set<Integer> addedIds = idsOf(department.getAddedEmployees());
+            Set<Integer> removedIds = idsOf(department.getRemovedEmployees());
+            Set<Integer> presentIds = new HashSet<>();
+            for (Employee member : department.getEmployees()) {
+                int id = member.getId();
+                if (id != 0 && !memberIds.contains(id) && !addedIds.contains(id)) {
+                    department.detachEmployee(member);
+                } else {
+                    presentIds.add(id);
+                }
+            }
+            for (int employeeId : memberIds) {
+                if (presentIds.contains(employeeId) || removedIds.contains(employeeId)) {
+                    continue;
+                }
+                Employee employee = enterprise.findEmployeeById(employeeId);
+                if (employee == null) {
+                    employee = delta.employees.get(employeeId);
+                }
+                if (employee != null) {
+                    department.attachEmployee(employee);
+                }
+            }
+        }
+
+        for (int departmentId : delta.changedDepartments) {
+            Department department = enterprise.findDepartmentById(departmentId);
+            if (department != null && !delta.departments.containsKey(departmentId)) {
+                enterprise.removeDepartment(department);
+            }
+        }
+    }
+    /**
+     * Drops the cached query results that the changes in {@code delta} touched, which may include
+     * writes by other processes.
+     */
+    private static void invalidate(Delta delta) {
+        QueryCache cache = DatabaseManager.getQueryCache();
+        if (!delta.updatedEmployees.isEmpty()) {
+            cache.employeesChanged(delta.updatedEmployees.stream().mapToInt(Integer::intValue).toArray());
+        }
+        if (!delta.departmentMembers.isEmpty()) {
+            // Inserts are not logged, but a new member may be an employee inserted by another process.
+            cache.employeesInserted();
+        }
+        Set<Integer> departmentIds = new HashSet<>(delta.changedDepartments);
+        departmentIds.addAll(delta.departmentMembers.keySet());
+        if (!departmentIds.isEmpty()) {
+            cache.departmentsChanged(departmentIds.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+    private static int readLog(Connection connection, long afterSequence, long latest, Delta delta) throws SQLException {
+        int rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT kind, entity_id FROM change_log WHERE seq > ? AND seq <= ? ORDER BY seq")) {
+            statement.setLong(1, afterSequence);
+            statement.setLong(2, latest);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int id = resultSet.getInt(2);
+                    switch (resultSet.getInt(1)) {
+                        case EMPLOYEE -> delta.updatedEmployees.add(id);
+                        case DEPARTMENT -> delta.changedDepartments.add(id);
+                        case DEPARTMENT_MEMBERS -> delta.departmentMembers.put(id, new HashSet<>());
+                        default -> { }
+                    }
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    private static long countEntries(Connection connection, long afterSequence) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT count(*) FROM change_log WHERE seq > ?")) {
+            statement.setLong(1, afterSequence);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+    private static int readEmployees(Connection connection, Delta delta) throws SQLException {
+        if (delta.updatedEmployees.isEmpty()) {
+            return 0;
+        }
+        int rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, full_name, age, salary FROM employees WHERE id IN (SELECT value FROM json_each(?))")) {
+            statement.setString(1, jsonArray(delta.updatedEmployees));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Employee employee = new Employee(resultSet.getString(2), resultSet.getInt(3), resultSet.getDouble(4));
+                    employee.setId(resultSet.getInt(1));
+                    delta.employees.put(employee.getId(), employee);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    private static int readDepartments(Connection connection, Delta delta) throws SQLException {
+        if (delta.changedDepartments.isEmpty()) {
+            return 0;
+        }
+        int rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, name FROM departments WHERE id IN (SELECT value FROM json_each(?))")) {
+            statement.setString(1, jsonArray(delta.changedDepartments));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    delta.departments.put(resultSet.getInt(1), resultSet.getString(2));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    /**
+     * Reads the members of every department whose members changed, with the rows of those not yet
+     * read, since some may be new to the model.
+     */
+    private static int readDepartmentMembers(Connection connection, Delta delta) throws SQLException {
+        if (delta.departmentMembers.isEmpty()) {
+            return 0;
+        }
+        int rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT ed.department_id, e.id, e.full_name, e.age, e.salary FROM employee_department ed " +
+                        "JOIN employees e ON e.id = ed.employee_id WHERE ed.department_id IN (SELECT value FROM json_each(?))")) {
+            statement.setString(1, jsonArray(delta.departmentMembers.keySet()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int employeeId = resultSet.getInt(2);
+                    delta.departmentMembers.get(resultSet.getInt(1)).add(employeeId);
+                    if (!delta.employees.containsKey(employeeId)) {
+                        Employee employee = new Employee(resultSet.getString(3), resultSet.getInt(4), resultSet.getDouble(5));
+                        employee.setId(employeeId);
+                        delta.employees.put(employeeId, employee);
+                    }
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    /**
+     * Starts pruning the change log every {@code enterprise.changeLog.pruneIntervalSeconds}, so it
+     * stays bounded in processes that write but never poll; a value of 0 turns pruning off.
+     */
+    static synchronized void startPruning() {
+        if (pruner != null || PRUNE_INTERVAL_SECONDS <= 0) {
+            return;
+        }
+        pruner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-prune");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pruner.scheduleWithFixedDelay(ChangeTracker::pruneChangeLog, PRUNE_INTERVAL_SECONDS, PRUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+    static synchronized void stopPruning() {
+        if (pruner != null) {
+            pruner.shutdownNow();
+            pruner = null;
+        }
+    }
+    /**
+     * Keeps the newest {@code enterprise.changeLog.retain} entries and records how far the log was
+     * pruned; a process that has not read past that point reloads fully.
+     */
+    static void pruneChangeLog() {
+        OperationMetrics.Timer timer = PRUNE_CHANGE_LOG.start();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement oldestRetained = connection.prepareStatement(
+                         "SELECT seq FROM change_log ORDER BY seq DESC LIMIT 1 OFFSET ?");
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM change_log WHERE seq <= ?");
+                 PreparedStatement mark = connection.prepareStatement("UPDATE change_log_pruned SET seq = max(seq, ?)")) {
+                oldestRetained.setInt(1, RETAINED_CHANGES);
+                long sequence;
+                try (ResultSet resultSet = oldestRetained.executeQuery()) {
+                    if (!resultSet.next()) {
+                        connection.commit();
+                        return;
+                    }
+                    sequence = resultSet.getLong(1);
+                }
+                delete.setLong(1, sequence);
+                timer.rowsWritten(delete.executeUpdate());
+                mark.setLong(1, sequence);
+                mark.executeUpdate();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    private static Set<Integer> idsOf(Set<Employee> employees) {
+        Set<Integer> ids = new HashSet<>();
+        for (Employee employee : employees) {
+            ids.add(employee.getId());
+        }
+        return ids;
+    }
+    private static String jsonArray(Collection<Integer> ids) {
+        StringBuilder json = new StringBuilder(ids.size() * 8).append('[');
+        for (int id : ids) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(id);
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,213 @@
+package org.enterprise;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a fixed number of SQLite connections open so callers pay the file-open and pragma cost once.
+ * Connections handed out by {@link #getConnection()} return to the pool when closed.
+ */
+public class ConnectionPool implements AutoCloseable, ConnectionPoolMBean {
+    private final DatabaseConfig config;
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> all = new ArrayList<>();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private volatile boolean closed;
+
+    public ConnectionPool(DatabaseConfig config) {
+        this.config = config;
+        this.idle = new ArrayBlockingQueue<>(config.getPoolSize());
+    }
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return acquire();
+        } finally {
+            acquireLatency.record(System.nanoTime() - start);
+        }
+    }
+    @Override
+    public int getPoolSize() {
+        return config.getPoolSize();
+    }
+    @Override
+    public synchronized int getOpenConnections() {
+        return all.size();
+    }
+    @Override
+    public int getIdleConnections() {
+        return idle.size();
+    }
+    @Override
+    public long getAcquireCount() {
+        return acquireLatency.getCount();
+    }
+    @Override
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+    @Override
+    public double getAcquireMeanMicros() {
+        return acquireLatency.getMeanNanos() / 1e3;
+    }
+    @Override
+    public double getAcquireP99Micros() {
+        return acquireLatency.getPercentileNanos(99) / 1e3;
+    }
+    @Override
+    public double getAcquireMaxMicros() {
+        return acquireLatency.getMaxNanos() / 1e3;
+    }
+    private Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        Connection physical = idle.poll();
+        if (physical == null) {
+            physical = openIfBelowLimit();
+        }
+        if (physical == null) {
+            try {
+                physical = idle.poll(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (physical == null) {
+                acquireTimeouts.increment();
+                throw new SQLException("Timed out waiting for a connection after " + config.getAcquireTimeoutMillis() + " ms");
+            }
+        }
+        if (physical.isClosed()) {
+            discard(physical);
+            return acquire();
+        }
+        return wrap(physical);
+    }
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Connection connection : all) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        all.clear();
+        idle.clear();
+    }
+    private synchronized Connection openIfBelowLimit() throws SQLException {
+        if (all.size() >= config.getPoolSize()) {
+            return null;
+        }
+        Connection connection = open();
+        all.add(connection);
+        return connection;
+    }
+    private synchronized void discard(Connection physical) {
+        all.remove(physical);
+    }
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(config.getUrl());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + config.getBusyTimeoutMillis());
+            statement.execute("PRAGMA journal_mode = " + config.getJournalMode());
+            statement.execute("PRAGMA synchronous = " + config.getSynchronous());
+            statement.execute("PRAGMA foreign_keys = " + (config.isForeignKeys() ? "ON" : "OFF"));
+            statement.execute("PRAGMA cache_size = -" + config.getCacheSizeKb());
+            statement.execute("PRAGMA mmap_size = " + config.getMmapSize());
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+    private void release(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                discard(physical);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+            }
+            discard(physical);
+            return;
+        }
+        if (closed || !idle.offer(physical)) {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            discard(physical);
+        }
+    }
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.enterprise;
+
+public interface ConnectionPoolMBean {
+    int getPoolSize();
+    int getOpenConnections();
+    int getIdleConnections();
+    long getAcquireCount();
+    long getAcquireTimeouts();
+    double getAcquireMeanMicros();
+    double getAcquireP99Micros();
+    double getAcquireMaxMicros();
+}
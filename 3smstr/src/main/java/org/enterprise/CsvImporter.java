@@ -0,0 +1,386 @@
+package org.enterprise;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a CSV file of employees into an {@link EnterpriseRepository}. Each line is
+ * {@code full_name,age,salary,departments}, where departments is a {@code ;}-separated list of
+ * department names, each quoted like a CSV field when it holds a {@code ;} or a quote; a header line starting with {@code full_name} is skipped. Departments that do
+ * not exist yet are created. Rows are committed in chunks, so memory use does not depend on the
+ * file size.
+ */
+public class CsvImporter {
+    public interface ProgressListener {
+        void onProgress(long rows, long bytesRead, long totalBytes);
+    }
+
+    /**
+     * Write side of an import, opened by {@link EnterpriseRepository#openImport()}. Rows written
+     * since the last {@link #commit()} are undone by {@link #rollback()}.
+     */
+    public interface Target extends AutoCloseable {
+        Map<String, Integer> loadDepartmentIds() throws SQLException;
+        int insertEmployee(String fullName, int age, double salary) throws SQLException;
+        int insertDepartment(String name) throws SQLException;
+        void insertMembership(int employeeId, int departmentId) throws SQLException;
+        void commit() throws SQLException;
+        void rollback() throws SQLException;
+        @Override
+        void close() throws SQLException;
+    }
+
+    public static class Result {
+        private final long rows;
+        private final long skippedRows;
+        private final long memberships;
+        private final int createdDepartments;
+        private final long elapsedMillis;
+
+        Result(long rows, long skippedRows, long memberships, int createdDepartments, long elapsedMillis) {
+            this.rows = rows;
+            this.skippedRows = skippedRows;
+            this.memberships = memberships;
+            this.createdDepartments = createdDepartments;
+            this.elapsedMillis = elapsedMillis;
+        }
+        public long getRows() {
+            return rows;
+        }
+        public long getSkippedRows() {
+            return skippedRows;
+        }
+        public long getMemberships() {
+            return memberships;
+        }
+        public int getCreatedDepartments() {
+            return createdDepartments;
+        }
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        @Override
+        public String toString() {
+            long rate = elapsedMillis == 0 ? rows : rows * 1000 / elapsedMillis;
+            return "Импортировано сотрудников: " + rows + ", пропущено строк: " + skippedRows +
+                    ", связей с отделами: " + memberships + ", новых отделов: " + createdDepartments +
+                    ", время: " + elapsedMillis + " мс (" + rate + " строк/с)";
+        }
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final int chunkSize;
+    private final ProgressListener listener;
+
+    public CsvImporter(ProgressListener listener) {
+        this(DEFAULT_CHUNK_SIZE, listener);
+    }
+    public CsvImporter(int chunkSize, ProgressListener listener) {
+        this.chunkSize = chunkSize;
+        this.listener = listener;
+    }
+    public Result importFile(Path file) throws IOException, SQLException {
+        return importFile(file, Repositories.get());
+    }
+    public Result importFile(Path file, EnterpriseRepository repository) throws IOException, SQLException {
+        long totalBytes = Files.size(file);
+        try (CountingInputStream input = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+             Target target = repository.openImport()) {
+            return importRows(reader, input, totalBytes, target);
+        }
+    }
+    private Result importRows(BufferedReader reader, CountingInputStream input, long totalBytes, Target target) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long skipped = 0;
+        long memberships = 0;
+        int lineNumber = 0;
+
+        Map<String, Integer> departmentIds = target.loadDepartmentIds();
+        int existingDepartments = departmentIds.size();
+        try {
+            List<String> fields = new ArrayList<>(4);
+            List<String> departmentNames = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && line.startsWith("full_name"))) {
+                    continue;
+                }
+                while (!parseLine(line, fields)) {
+                    String next = reader.readLine();
+                    if (next == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    line = line + "\n" + next;
+                }
+                if (fields.size() < 3) {
+                    System.err.println("Line " + lineNumber + ": expected at least 3 fields, skipped.");
+                    skipped++;
+                    continue;
+                }
+
+                int age;
+                double salary;
+                try {
+                    age = Integer.parseInt(fields.get(1).trim());
+                    salary = Double.parseDouble(fields.get(2).trim());
+                } catch (NumberFormatException e) {
+                    System.err.println("Line " + lineNumber + ": " + e.getMessage() + ", skipped.");
+                    skipped++;
+                    continue;
+                }
+
+                int employeeId = target.insertEmployee(fields.get(0).trim(), age, salary);
+                if (fields.size() > 3) {
+                    parseLine(fields.get(3), ';', departmentNames);
+                    for (String departmentName : departmentNames) {
+                        departmentName = departmentName.trim();
+                        if (departmentName.isEmpty()) {
+                            continue;
+                        }
+                        Integer departmentId = departmentIds.get(departmentName);
+                        if (departmentId == null) {
+                            departmentId = target.insertDepartment(departmentName);
+                            departmentIds.put(departmentName, departmentId);
+                        }
+                        target.insertMembership(employeeId, departmentId);
+                        memberships++;
+                    }
+                }
+
+                rows++;
+                if (rows % chunkSize == 0) {
+                    target.commit();
+                    listener.onProgress(rows, input.getCount(), totalBytes);
+                }
+            }
+            target.commit();
+            if (rows % chunkSize != 0) {
+                listener.onProgress(rows, totalBytes, totalBytes);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            target.rollback();
+            throw e;
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new Result(rows, skipped, memberships, departmentIds.size() - existingDepartments, elapsedMillis);
+    }
+    static Target openDatabaseTarget() throws SQLException {
+        Connection connection = DatabaseManager.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            return new DatabaseTarget(connection);
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+    /**
+     * Splits an RFC 4180 line into {@code fields}. Returns false when a quoted field is still open,
+     * in which case the caller appends the next physical line and parses again.
+     */
+    static boolean parseLine(String line, List<String> fields) {
+        return parseLine(line, ',', fields);
+    }
+    static boolean parseLine(String line, char separator, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+
+    /**
+     * Imports into the SQLite database on one connection. Employees and memberships are batched and
+     * sent with each commit; departments are inserted at once, as their ids are needed immediately.
+     * The first employee of a transaction is inserted at once too: its id comes back from the database,
+     * and as the transaction now holds the write lock, the ids after it are free for the rest of the
+     * chunk, which is batched with explicit ids.
+     */
+    private static class DatabaseTarget implements Target {
+        private final Connection connection;
+        private final PreparedStatement insertFirstEmployee;
+        private final PreparedStatement insertEmployee;
+        private final PreparedStatement insertDepartment;
+        private final PreparedStatement insertMembership;
+        private final IntHashSet changedDepartments = new IntHashSet();
+        private boolean insertedEmployees;
+        // Id for the next batched employee, 0 before the first employee of the transaction.
+        private int nextEmployeeId;
+
+        DatabaseTarget(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.insertFirstEmployee = connection.prepareStatement(
+                    "INSERT INTO employees (full_name, age, salary) VALUES (?, ?, ?) RETURNING id");
+            this.insertEmployee = connection.prepareStatement(
+                    "INSERT INTO employees (id, full_name, age, salary) VALUES (?, ?, ?, ?)");
+            this.insertDepartment = connection.prepareStatement(
+                    "INSERT INTO departments (name) VALUES (?) RETURNING id");
+            this.insertMembership = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO employee_department (employee_id, department_id) VALUES (?, ?)");
+        }
+        @Override
+        public Map<String, Integer> loadDepartmentIds() throws SQLException {
+            Map<String, Integer> departmentIds = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id, name FROM departments ORDER BY id")) {
+                while (resultSet.next()) {
+                    departmentIds.putIfAbsent(resultSet.getString("name"), resultSet.getInt("id"));
+                }
+            }
+            return departmentIds;
+        }
+        @Override
+        public int insertEmployee(String fullName, int age, double salary) throws SQLException {
+            if (nextEmployeeId != 0) {
+                int id = nextEmployeeId++;
+                insertEmployee.setInt(1, id);
+                insertEmployee.setString(2, fullName);
+                insertEmployee.setInt(3, age);
+                insertEmployee.setDouble(4, salary);
+                insertEmployee.addBatch();
+                return id;
+            }
+            insertFirstEmployee.setString(1, fullName);
+            insertFirstEmployee.setInt(2, age);
+            insertFirstEmployee.setDouble(3, salary);
+            try (ResultSet keys = insertFirstEmployee.executeQuery()) {
+                if (!keys.next()) {
+                    throw new SQLException("Creating employee failed, no ID obtained.");
+                }
+                insertedEmployees = true;
+                int id = keys.getInt(1);
+                nextEmployeeId = id + 1;
+                return id;
+            }
+        }
+        @Override
+        public int insertDepartment(String name) throws SQLException {
+            insertDepartment.setString(1, name);
+            try (ResultSet keys = insertDepartment.executeQuery()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+                throw new SQLException("Creating department failed, no ID obtained.");
+            }
+        }
+        @Override
+        public void insertMembership(int employeeId, int departmentId) throws SQLException {
+            insertMembership.setInt(1, employeeId);
+            insertMembership.setInt(2, departmentId);
+            insertMembership.addBatch();
+            changedDepartments.add(departmentId);
+        }
+        @Override
+        public void commit() throws SQLException {
+            insertEmployee.executeBatch();
+            insertMembership.executeBatch();
+            connection.commit();
+            nextEmployeeId = 0;
+            QueryCache cache = DatabaseManager.getQueryCache();
+            if (insertedEmployees) {
+                cache.employeesInserted();
+            }
+            if (!changedDepartments.isEmpty()) {
+                cache.departmentsChanged(changedDepartments.toSortedArray());
+            }
+            insertedEmployees = false;
+            changedDepartments.clear();
+        }
+        @Override
+        public void rollback() throws SQLException {
+            insertEmployee.clearBatch();
+            insertMembership.clearBatch();
+            connection.rollback();
+            nextEmployeeId = 0;
+            insertedEmployees = false;
+            changedDepartments.clear();
+        }
+        @Override
+        public void close() throws SQLException {
+            try {
+                insertFirstEmployee.close();
+                insertEmployee.close();
+                insertDepartment.close();
+                insertMembership.close();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        long getCount() {
+            return count;
+        }
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
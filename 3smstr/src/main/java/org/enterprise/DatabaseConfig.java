@@ -0,0 +1,105 @@
+package org.enterprise;
+
+public class DatabaseConfig {
+    public static final String DEFAULT_URL = "jdbc:sqlite:enterprise.db";
+
+    private String url = DEFAULT_URL;
+    private int poolSize = 4;
+    private long acquireTimeoutMillis = 30_000;
+    private String journalMode = "WAL";
+    private String synchronous = "NORMAL";
+    private boolean foreignKeys = true;
+    private int cacheSizeKb = 16_384;
+    private long mmapSize = 268_435_456L;
+    private int busyTimeoutMillis = 5_000;
+    private long queryCacheRows = 1_000_000;
+
+    public static DatabaseConfig fromSystemProperties() {
+        DatabaseConfig config = new DatabaseConfig();
+        config.setUrl(System.getProperty("enterprise.db.url", config.getUrl()));
+        config.setPoolSize(Integer.getInteger("enterprise.db.poolSize", config.getPoolSize()));
+        config.setAcquireTimeoutMillis(Long.getLong("enterprise.db.acquireTimeoutMillis", config.getAcquireTimeoutMillis()));
+        config.setJournalMode(System.getProperty("enterprise.db.journalMode", config.getJournalMode()));
+        config.setSynchronous(System.getProperty("enterprise.db.synchronous", config.getSynchronous()));
+        config.setForeignKeys(Boolean.parseBoolean(System.getProperty("enterprise.db.foreignKeys", String.valueOf(config.isForeignKeys()))));
+        config.setCacheSizeKb(Integer.getInteger("enterprise.db.cacheSizeKb", config.getCacheSizeKb()));
+        config.setMmapSize(Long.getLong("enterprise.db.mmapSize", config.getMmapSize()));
+        config.setBusyTimeoutMillis(Integer.getInteger("enterprise.db.busyTimeoutMillis", config.getBusyTimeoutMillis()));
+        config.setQueryCacheRows(Long.getLong("enterprise.db.queryCacheRows", config.getQueryCacheRows()));
+        return config;
+    }
+    public static DatabaseConfig forFile(String path) {
+        DatabaseConfig config = fromSystemProperties();
+        config.setUrl("jdbc:sqlite:" + path);
+        return config;
+    }
+    public String getUrl() {
+        return url;
+    }
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    public int getPoolSize() {
+        return poolSize;
+    }
+    public void setPoolSize(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+    public String getJournalMode() {
+        return journalMode;
+    }
+    public void setJournalMode(String journalMode) {
+        this.journalMode = journalMode;
+    }
+    public String getSynchronous() {
+        return synchronous;
+    }
+    public void setSynchronous(String synchronous) {
+        this.synchronous = synchronous;
+    }
+    public boolean isForeignKeys() {
+        return foreignKeys;
+    }
+    public void setForeignKeys(boolean foreignKeys) {
+        this.foreignKeys = foreignKeys;
+    }
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
+    }
+    public void setCacheSizeKb(int cacheSizeKb) {
+        this.cacheSizeKb = cacheSizeKb;
+    }
+    public long getMmapSize() {
+        return mmapSize;
+    }
+    public void setMmapSize(long mmapSize) {
+        this.mmapSize = mmapSize;
+    }
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+    public void setBusyTimeoutMillis(int busyTimeoutMillis) {
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+    /**
+     * Returns the number of employee rows the {@link QueryCache} may hold; 0 disables it.
+     */
+    public long getQueryCacheRows() {
+        return queryCacheRows;
+    }
+    public void setQueryCacheRows(long queryCacheRows) {
+        if (queryCacheRows < 0) {
+            throw new IllegalArgumentException("Query cache size must not be negative: " + queryCacheRows);
+        }
+        this.queryCacheRows = queryCacheRows;
+    }
+}
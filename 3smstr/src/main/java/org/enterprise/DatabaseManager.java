@@ -2,10 +2,98 @@ package org.enterprise;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 public class DatabaseManager {
-    private static final String URL = "jdbc:sqlite:enterprise.db";
+    private static final OperationMetrics CREATE_TABLES = DatabaseMetrics.operation("createTables");
+    private static final OperationMetrics SAVE_EMPLOYEE = DatabaseMetrics.operation("saveEmployee");
+    private static final OperationMetrics SAVE_DEPARTMENT = DatabaseMetrics.operation("saveDepartment");
+    private static final OperationMetrics SAVE_EMPLOYEE_DEPARTMENT = DatabaseMetrics.operation("saveEmployeeDepartment");
+    private static final OperationMetrics SAVE_DEPARTMENT_MEMBERS = DatabaseMetrics.operation("saveDepartmentMembers");
+    private static final OperationMetrics LOAD_ALL_EMPLOYEES = DatabaseMetrics.operation("loadAllEmployees");
+    private static final OperationMetrics LOAD_EMPLOYEE = DatabaseMetrics.operation("loadEmployee");
+    private static final OperationMetrics COUNT_EMPLOYEES = DatabaseMetrics.operation("countEmployees");
+    private static final OperationMetrics LOAD_EMPLOYEES_PAGE = DatabaseMetrics.operation("loadEmployeesPage");
+    private static final OperationMetrics LOAD_EMPLOYEES_PAGE_AT = DatabaseMetrics.operation("loadEmployeesPageAt");
+    private static final OperationMetrics SCAN_EMPLOYEES = DatabaseMetrics.operation("scanEmployees");
+    private static final OperationMetrics SCAN_DEPARTMENT_EMPLOYEE_IDS = DatabaseMetrics.operation("scanDepartmentEmployeeIds");
+    private static final OperationMetrics LOAD_ALL_DEPARTMENTS = DatabaseMetrics.operation("loadAllDepartments");
+    private static final OperationMetrics UPDATE_EMPLOYEE = DatabaseMetrics.operation("updateEmployee");
+    private static final OperationMetrics UPDATE_DEPARTMENT = DatabaseMetrics.operation("updateDepartment");
+    private static final OperationMetrics REMOVE_EMPLOYEE = DatabaseMetrics.operation("removeEmployee");
+    private static final OperationMetrics REMOVE_DEPARTMENT = DatabaseMetrics.operation("removeDepartment");
+    private static final OperationMetrics DELETE_EMPLOYEE_DEPARTMENTS = DatabaseMetrics.operation("deleteEmployeeDepartmentsForDepartment");
+    private static final OperationMetrics LOAD_DEPARTMENT_EMPLOYEES = DatabaseMetrics.operation("loadDepartmentEmployees");
+    private static final OperationMetrics APPLY_CHANGES = DatabaseMetrics.operation("applyChanges");
+    private static final OperationMetrics SCAN_DEPARTMENT_EMPLOYEES = DatabaseMetrics.operation("scanDepartmentEmployees");
+    private static final OperationMetrics SCAN_EMPLOYEE_DEPARTMENT_IDS = DatabaseMetrics.operation("scanEmployeeDepartmentIds");
+    private static final OperationMetrics SCAN_MEMBERSHIPS = DatabaseMetrics.operation("scanMemberships");
+    private static final OperationMetrics LOAD_DEPARTMENT_SUMMARIES = DatabaseMetrics.operation("loadDepartmentSummaries");
+    private static final OperationMetrics LOAD_SALARY_TOTALS = DatabaseMetrics.operation("loadSalaryTotals");
+    private static final OperationMetrics SEARCH_EMPLOYEES = DatabaseMetrics.operation("searchEmployees");
+    private static final OperationMetrics RAISE_SALARIES = DatabaseMetrics.operation("raiseSalaries");
+    private static final OperationMetrics CLAMP_SALARIES = DatabaseMetrics.operation("clampSalaries");
+    private static final OperationMetrics MOVE_DEPARTMENT_MEMBERS = DatabaseMetrics.operation("moveDepartmentMembers");
+    private static final OperationMetrics DEPARTMENT_EXISTS = DatabaseMetrics.operation("departmentExists");
+
+    private static volatile ConnectionPool pool;
+    private static volatile QueryCache queryCache;
+
+    public static synchronized void configure(DatabaseConfig config) {
+        if (pool != null) {
+            pool.close();
+        }
+        open(config);
+    }
+    public static synchronized void shutdown() {
+        ChangeTracker.stopPruning();
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        queryCache = null;
+    }
+    static Connection getConnection() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                if (pool == null) {
+                    open(DatabaseConfig.fromSystemProperties());
+                }
+                current = pool;
+            }
+        }
+        return current.getConnection();
+    }
+    /**
+     * Returns the cache of query results for the configured database; a new database starts empty.
+     */
+    public static QueryCache getQueryCache() {
+        QueryCache current = queryCache;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                if (queryCache == null) {
+                    open(DatabaseConfig.fromSystemProperties());
+                }
+                current = queryCache;
+            }
+        }
+        return current;
+    }
+    private static void open(DatabaseConfig config) {
+        queryCache = new QueryCache(config.getQueryCacheRows());
+        DatabaseMetrics.registerQueryCache(queryCache);
+        pool = new ConnectionPool(config);
+        DatabaseMetrics.registerPool(pool);
+        ChangeTracker.startPruning();
+    }
+    static String getUrl() {
+        ConnectionPool current = pool;
+        return current != null ? current.getConfig().getUrl() : DatabaseConfig.fromSystemProperties().getUrl();
+    }
 
     public static void createTables() {
         try {
@@ -15,93 +103,65 @@ public class DatabaseManager {
             System.err.println("SQLite JDBC driver not found");
             return;
         }
-        try (Connection connection = DriverManager.getConnection(URL);
-             Statement statement = connection.createStatement()) {
-
-            String createEmployeeTable = "CREATE TABLE IF NOT EXISTS employees (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "full_name TEXT," +
-                    "age INTEGER," +
-                    "salary REAL);";
-            statement.executeUpdate(createEmployeeTable);
-
-            String createDepartmentTable = "CREATE TABLE IF NOT EXISTS departments (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "name TEXT);";
-            statement.executeUpdate(createDepartmentTable);
-
-            String createEmployeeDepartmentTable = "CREATE TABLE IF NOT EXISTS employee_department (" +
-                    "employee_id INTEGER," +
-                    "department_id INTEGER," +
-                    "FOREIGN KEY (employee_id) REFERENCES employees (id) ON DELETE CASCADE," +
-                    "FOREIGN KEY (department_id) REFERENCES departments (id) ON DELETE CASCADE);";
-            statement.executeUpdate(createEmployeeDepartmentTable);
-
+        OperationMetrics.Timer timer = CREATE_TABLES.start();
+        try (Connection connection = getConnection()) {
+            SchemaMigrator.migrate(connection);
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
             System.err.println("Error creating tables: " + e.getMessage());
+        } finally {
+            timer.stop();
         }
     }
     public static int saveEmployee(Employee employee) {
-        try (Connection connection = DriverManager.getConnection(URL);
-             PreparedStatement statement = connection.prepareStatement("INSERT INTO employees (full_name, age, salary) VALUES (?, ?, ?)")) {
+        OperationMetrics.Timer timer = SAVE_EMPLOYEE.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO employees (full_name, age, salary) VALUES (?, ?, ?) RETURNING id")) {
             statement.setString(1, employee.getFullName());
             statement.setInt(2, employee.getAge());
             statement.setDouble(3, employee.getSalary());
 
-            int affectedRows = statement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Creating employee failed, no rows affected.");
-            }
-
-            try (Statement idStatement = connection.createStatement()) {
-                try (ResultSet resultSet = idStatement.executeQuery("SELECT last_insert_rowid()")) {
-                    if (resultSet.next()) {
-                        int employeeId = resultSet.getInt(1);
-                        employee.setId(employeeId);
-                        return employeeId;
-                    } else {
-                        throw new SQLException("Creating employee failed, no ID obtained.");
-                    }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    int employeeId = resultSet.getInt(1);
+                    employee.setId(employeeId);
+                    timer.rowsWritten(1);
+                    getQueryCache().employeesInserted();
+                    return employeeId;
+                } else {
+                    throw new SQLException("Creating employee failed, no ID obtained.");
                 }
             }
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
             return -1;
+        } finally {
+            timer.stop();
         }
     }
     public static int saveDepartment(Department department) {
-        try (Connection connection = DriverManager.getConnection(URL);
-             PreparedStatement statement = connection.prepareStatement("INSERT INTO departments (name) VALUES (?)")) {
-            statement.setString(1, department.getName());
-
-            int affectedRows = statement.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new SQLException("Creating department failed, no rows affected.");
-            }
-
-            try (Statement idStatement = connection.createStatement()) {
-                try (ResultSet resultSet = idStatement.executeQuery("SELECT last_insert_rowid()")) {
-                    if (resultSet.next()) {
-                        int departmentId = resultSet.getInt(1);
-                        department.setId(departmentId);
-                        return departmentId;
-                    } else {
-                        throw new SQLException("Creating department failed, no ID obtained.");
-                    }
-                }
-            }
+        OperationMetrics.Timer timer = SAVE_DEPARTMENT.start();
+        try (Connection connection = getConnection()) {
+            int departmentId = insertDepartment(connection, department);
+            department.setId(departmentId);
+            timer.rowsWritten(1);
+            getQueryCache().departmentsChanged(departmentId);
+            return departmentId;
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
             return -1;
+        } finally {
+            timer.stop();
         }
     }
     public static void saveEmployeeDepartment(int employeeId, int departmentId) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = SAVE_EMPLOYEE_DEPARTMENT.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO employee_department (employee_id, department_id) VALUES (?, ?)")) {
+                     "INSERT OR IGNORE INTO employee_department (employee_id, department_id) VALUES (?, ?)")) {
 
             if (!employeeExists(connection, employeeId)) {
                 System.err.println("Employee with ID " + employeeId + " does not exist.");
@@ -115,15 +175,91 @@ public class DatabaseManager {
 
             statement.setInt(1, employeeId);
             statement.setInt(2, departmentId);
-            statement.executeUpdate();
+            timer.rowsWritten(statement.executeUpdate());
+            getQueryCache().departmentsChanged(departmentId);
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static boolean saveDepartmentMembers(Department department) {
+        return saveDepartmentMembers(department, department.getEmployees());
+    }
+    public static boolean saveDepartmentMembers(Department department, List<Employee> employees) {
+        OperationMetrics.Timer timer = SAVE_DEPARTMENT_MEMBERS.start();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            boolean assignedId = false;
+            try {
+                int departmentId = department.getId();
+                if (departmentId == 0) {
+                    departmentId = insertDepartment(connection, department);
+                    department.setId(departmentId);
+                    assignedId = true;
+                } else if (!departmentExists(connection, departmentId)) {
+                    System.err.println("Department with ID " + departmentId + " does not exist.");
+                    connection.rollback();
+                    return false;
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "DELETE FROM employee_department WHERE department_id = ?")) {
+                    statement.setInt(1, departmentId);
+                    timer.rowsWritten(statement.executeUpdate());
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO employee_department (employee_id, department_id) " +
+                                "SELECT id, ? FROM employees WHERE id = ?")) {
+                    for (Employee employee : employees) {
+                        statement.setInt(1, departmentId);
+                        statement.setInt(2, employee.getId());
+                        statement.addBatch();
+                    }
+                    int[] results = statement.executeBatch();
+                    for (int i = 0; i < results.length; i++) {
+                        if (results[i] == 0) {
+                            System.err.println("Employee with ID " + employees.get(i).getId() + " does not exist.");
+                        } else {
+                            timer.rowsWritten(results[i]);
+                        }
+                    }
+                }
+
+                connection.commit();
+                getQueryCache().departmentsChanged(departmentId);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                if (assignedId) {
+                    department.setId(0);
+                }
+                throw e;
+            }
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
         }
     }
     public static List<Employee> loadAllEmployees() {
-        List<Employee> employees = new ArrayList<>();
+        OperationMetrics.Timer timer = LOAD_ALL_EMPLOYEES.start();
+        QueryCache cache = getQueryCache();
+        List<Employee> employees = cache.getAllEmployees();
+        if (employees != null) {
+            // Hits count as calls too; the QueryCache MBean tells hits and misses apart.
+            timer.rowsRead(employees.size());
+            timer.stop();
+            return employees;
+        }
+        long generation = cache.generation();
+        employees = new ArrayList<>();
 
-        try (Connection connection = DriverManager.getConnection(URL);
+        try (Connection connection = getConnection();
              Statement statement = connection.createStatement()) {
             String query = "SELECT * FROM employees";
             try (ResultSet resultSet = statement.executeQuery(query)) {
@@ -133,16 +269,365 @@ public class DatabaseManager {
                     employees.add(employee);
                 }
             }
+            cache.putAllEmployees(generation, employees);
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.rowsRead(employees.size());
+            timer.stop();
         }
 
         return employees;
     }
+    public static Employee loadEmployee(int employeeId) {
+        OperationMetrics.Timer timer = LOAD_EMPLOYEE.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id, full_name, age, salary FROM employees WHERE id = ?")) {
+            statement.setInt(1, employeeId);
+            List<Employee> employees = readEmployees(statement, 1);
+            timer.rowsRead(employees.size());
+            return employees.isEmpty() ? null : employees.get(0);
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Finds employees whose name contains words starting with each word of {@code text}, ignoring
+     * case, diacritics and the difference between "ё" and "е". A query of digits also matches the
+     * employee with that id, which is returned first. Results come in id order, not by relevance.
+     */
+    public static List<Employee> searchEmployees(String text, int limit) {
+        List<Employee> employees = new ArrayList<>();
+        String match = nameMatchQuery(text);
+        if (match == null || limit <= 0) {
+            return employees;
+        }
+        OperationMetrics.Timer timer = SEARCH_EMPLOYEES.start();
+        try (Connection connection = getConnection()) {
+            int exactId = 0;
+            if (text.trim().matches("\\d{1,9}")) {
+                exactId = Integer.parseInt(text.trim());
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT id, full_name, age, salary FROM employees WHERE id = ?")) {
+                    statement.setInt(1, exactId);
+                    employees.addAll(readEmployees(statement, 1));
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT e.id, e.full_name, e.age, e.salary FROM employees_fts f " +
+                            "JOIN employees e ON e.id = f.rowid WHERE employees_fts MATCH ? LIMIT ?")) {
+                statement.setString(1, match);
+                statement.setInt(2, limit);
+                for (Employee employee : readEmployees(statement, limit)) {
+                    if (employee.getId() != exactId && employees.size() < limit) {
+                        employees.add(employee);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.rowsRead(employees.size());
+            timer.stop();
+        }
+        return employees;
+    }
+    /**
+     * Turns free text into an FTS5 query that requires a prefix match for every word, or returns
+     * null if the text has no words.
+     */
+    static String nameMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : text.replace('ё', 'е').replace('Ё', 'Е').split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append('"').append(word).append("\"*");
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+    public static int countEmployees() {
+        OperationMetrics.Timer timer = COUNT_EMPLOYEES.start();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM employees")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return 0;
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Returns the page after the row with key {@code afterValue} and id {@code afterId}. A null
+     * {@code afterValue} means that row had a NULL key. SQLite sorts NULL first, so the NULL group
+     * leads an ascending listing and trails a descending one. An OR across both groups would scan
+     * the whole index, so each group is read with its own range query, and the second query only
+     * tops up a short page.
+     */
+    public static List<Employee> loadEmployeesPage(EmployeeSortKey sortKey, boolean ascending, Object afterValue, int afterId, int limit) {
+        String column = sortKey.getColumn();
+        String direction = ascending ? "ASC" : "DESC";
+        String comparison = ascending ? ">" : "<";
+        String select = "SELECT id, full_name, age, salary FROM employees WHERE ";
+        String keyOrder = " ORDER BY " + column + " " + direction + ", id " + direction + " LIMIT ?";
+        String nullOrder = " ORDER BY id " + direction + " LIMIT ?";
+        String query;
+        Object[] bounds;
+        String nextQuery = null;
+        if (sortKey == EmployeeSortKey.ID) {
+            query = select + "id " + comparison + " ? ORDER BY id " + direction + " LIMIT ?";
+            bounds = new Object[] {afterId};
+        } else if (afterValue == null) {
+            query = select + column + " IS NULL AND id " + comparison + " ?" + nullOrder;
+            bounds = new Object[] {afterId};
+            if (ascending) {
+                nextQuery = select + column + " IS NOT NULL" + keyOrder;
+            }
+        } else {
+            query = select + "(" + column + ", id) " + comparison + " (?, ?)" + keyOrder;
+            bounds = new Object[] {afterValue, afterId};
+            if (!ascending) {
+                nextQuery = select + column + " IS NULL" + nullOrder;
+            }
+        }
+
+        OperationMetrics.Timer timer = LOAD_EMPLOYEES_PAGE.start();
+        try (Connection connection = getConnection()) {
+            List<Employee> employees;
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                int index = 1;
+                for (Object bound : bounds) {
+                    statement.setObject(index++, bound);
+                }
+                statement.setInt(index, limit);
+                employees = readEmployees(statement, limit);
+            }
+            if (nextQuery != null && employees.size() < limit) {
+                try (PreparedStatement statement = connection.prepareStatement(nextQuery)) {
+                    statement.setInt(1, limit - employees.size());
+                    employees.addAll(readEmployees(statement, limit - employees.size()));
+                }
+            }
+            timer.rowsRead(employees.size());
+            return employees;
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static List<Employee> loadEmployeesPageAt(EmployeeSortKey sortKey, boolean ascending, int offset, int limit) {
+        String direction = ascending ? "ASC" : "DESC";
+        String order = sortKey == EmployeeSortKey.ID
+                ? "id " + direction
+                : sortKey.getColumn() + " " + direction + ", id " + direction;
+
+        OperationMetrics.Timer timer = LOAD_EMPLOYEES_PAGE_AT.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id, full_name, age, salary FROM employees ORDER BY " + order + " LIMIT ? OFFSET ?")) {
+            statement.setInt(1, limit);
+            statement.setInt(2, offset);
+            List<Employee> employees = readEmployees(statement, limit);
+            timer.rowsRead(employees.size());
+            return employees;
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            timer.stop();
+        }
+    }
+    private static List<Employee> readEmployees(PreparedStatement statement, int expectedRows) throws SQLException {
+        List<Employee> employees = new ArrayList<>(expectedRows);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Employee employee = new Employee(resultSet.getString("full_name"), resultSet.getInt("age"), resultSet.getDouble("salary"));
+                // Pages are keyed by the last row, so a NULL sort key must not pass for 0.
+                int nullFields = (resultSet.getObject("age") == null ? Employee.AGE : 0)
+                        | (resultSet.getObject("salary") == null ? Employee.SALARY : 0);
+                if (nullFields != 0) {
+                    employee.markNull(nullFields);
+                }
+                employee.setId(resultSet.getInt("id"));
+                employees.add(employee);
+            }
+        }
+        return employees;
+    }
+    public static void scanEmployees(EnterpriseRepository.EmployeeRowHandler handler) {
+        OperationMetrics.Timer timer = SCAN_EMPLOYEES.start();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setFetchSize(1_000);
+            try (ResultSet resultSet = statement.executeQuery("SELECT id, full_name, age, salary FROM employees ORDER BY id")) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getString(2), resultSet.getInt(3), resultSet.getDouble(4));
+                    timer.rowRead();
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static void scanDepartmentEmployeeIds(int departmentId, IntConsumer consumer) {
+        OperationMetrics.Timer timer = SCAN_DEPARTMENT_EMPLOYEE_IDS.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT employee_id FROM employee_department WHERE department_id = ? ORDER BY employee_id")) {
+            statement.setInt(1, departmentId);
+            statement.setFetchSize(1_000);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getInt(1));
+                    timer.rowRead();
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static void scanDepartmentEmployees(int departmentId, EnterpriseRepository.EmployeeRowHandler handler) {
+        OperationMetrics.Timer timer = SCAN_DEPARTMENT_EMPLOYEES.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT e.id, e.full_name, e.age, e.salary FROM employee_department ed " +
+                             "JOIN employees e ON e.id = ed.employee_id WHERE ed.department_id = ? ORDER BY ed.employee_id")) {
+            statement.setInt(1, departmentId);
+            statement.setFetchSize(1_000);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getString(2), resultSet.getInt(3), resultSet.getDouble(4));
+                    timer.rowRead();
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static void scanEmployeeDepartmentIds(int employeeId, IntConsumer consumer) {
+        OperationMetrics.Timer timer = SCAN_EMPLOYEE_DEPARTMENT_IDS.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT department_id FROM employee_department WHERE employee_id = ? ORDER BY department_id")) {
+            statement.setInt(1, employeeId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(resultSet.getInt(1));
+                    timer.rowRead();
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static void scanMemberships(EnterpriseRepository.MembershipRowHandler handler) {
+        OperationMetrics.Timer timer = SCAN_MEMBERSHIPS.start();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setFetchSize(1_000);
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT employee_id, department_id FROM employee_department ORDER BY employee_id, department_id")) {
+                while (resultSet.next()) {
+                    handler.accept(resultSet.getInt(1), resultSet.getInt(2));
+                    timer.rowRead();
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    public static List<DepartmentSummary> loadDepartmentSummaries() {
+        return loadDepartmentSummaries(null);
+    }
+    public static DepartmentSummary loadDepartmentSummary(int departmentId) {
+        List<DepartmentSummary> summaries = loadDepartmentSummaries(departmentId);
+        return summaries.isEmpty() ? null : summaries.get(0);
+    }
+    private static List<DepartmentSummary> loadDepartmentSummaries(Integer departmentId) {
+        List<DepartmentSummary> summaries = new ArrayList<>();
+        OperationMetrics.Timer timer = LOAD_DEPARTMENT_SUMMARIES.start();
+        String query = "SELECT d.id, d.name, COUNT(e.id), COALESCE(SUM(e.salary), 0), MIN(e.salary), MAX(e.salary) " +
+                "FROM departments d " +
+                "LEFT JOIN employee_department ed ON ed.department_id = d.id " +
+                "LEFT JOIN employees e ON e.id = ed.employee_id " +
+                (departmentId == null ? "" : "WHERE d.id = ? ") +
+                "GROUP BY d.id ORDER BY d.id";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            if (departmentId != null) {
+                statement.setInt(1, departmentId);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    SalaryTotals salaries = new SalaryTotals(resultSet.getLong(3), resultSet.getDouble(4),
+                            resultSet.getDouble(5), resultSet.getDouble(6));
+                    summaries.add(new DepartmentSummary(resultSet.getInt(1), resultSet.getString(2), salaries));
+                }
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.rowsRead(summaries.size());
+            timer.stop();
+        }
+        return summaries;
+    }
+    public static SalaryTotals loadSalaryTotals() {
+        OperationMetrics.Timer timer = LOAD_SALARY_TOTALS.start();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*), COALESCE(SUM(salary), 0), MIN(salary), MAX(salary) FROM employees")) {
+            resultSet.next();
+            return new SalaryTotals(resultSet.getLong(1), resultSet.getDouble(2), resultSet.getDouble(3), resultSet.getDouble(4));
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return new SalaryTotals(0, 0, 0, 0);
+        } finally {
+            timer.stop();
+        }
+    }
     public static List<Department> loadAllDepartments() {
         List<Department> departments = new ArrayList<>();
+        OperationMetrics.Timer timer = LOAD_ALL_DEPARTMENTS.start();
 
-        try (Connection connection = DriverManager.getConnection(URL);
+        try (Connection connection = getConnection();
              Statement statement = connection.createStatement()) {
             String query = "SELECT * FROM departments";
             try (ResultSet resultSet = statement.executeQuery(query)) {
@@ -153,69 +638,231 @@ public class DatabaseManager {
                 }
             }
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.rowsRead(departments.size());
+            timer.stop();
         }
 
         return departments;
     }
     public static void updateEmployee(Employee employee) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = UPDATE_EMPLOYEE.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement("UPDATE employees SET full_name = ?, age = ?, salary = ? WHERE id = ?")) {
             statement.setString(1, employee.getFullName());
             statement.setInt(2, employee.getAge());
             statement.setDouble(3, employee.getSalary());
             statement.setInt(4, employee.getId());
-            statement.executeUpdate();
+            timer.rowsWritten(statement.executeUpdate());
+            getQueryCache().employeesChanged(employee.getId());
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
     }
     public static void updateDepartment(Department department) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = UPDATE_DEPARTMENT.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement("UPDATE departments SET name = ? WHERE id = ?")) {
             statement.setString(1, department.getName());
             statement.setInt(2, department.getId());
-            statement.executeUpdate();
+            // No cached query result contains department names, so nothing is invalidated.
+            timer.rowsWritten(statement.executeUpdate());
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Sets the salary of every member of a department to {@code salary * (1 + percent / 100) + amount},
+     * rounded to cents, in one statement. Returns the new salaries, or null on failure.
+     */
+    public static SalaryUpdate raiseSalaries(int departmentId, double percent, double amount) {
+        OperationMetrics.Timer timer = RAISE_SALARIES.start();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE employees SET salary = round(salary * ? + ?, 2) " +
+                            "WHERE id IN (SELECT employee_id FROM employee_department WHERE department_id = ?) " +
+                            "RETURNING id, salary")) {
+                statement.setDouble(1, 1 + percent / 100);
+                statement.setDouble(2, amount);
+                statement.setInt(3, departmentId);
+                SalaryUpdate update = readSalaryUpdate(statement);
+                connection.commit();
+                timer.rowsWritten(update.size());
+                getQueryCache().employeesChanged(update.getEmployeeIds());
+                return update;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Raises salaries below {@code floor} to it and lowers salaries above {@code cap} to it for
+     * employees aged {@code minAge} to {@code maxAge}, in one statement. An infinite bound is not
+     * applied. Returns the changed salaries, or null on failure.
+     */
+    public static SalaryUpdate clampSalaries(int minAge, int maxAge, double floor, double cap) {
+        OperationMetrics.Timer timer = CLAMP_SALARIES.start();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE employees SET salary = min(max(salary, ?), ?) " +
+                            "WHERE age BETWEEN ? AND ? AND (salary < ? OR salary > ?) " +
+                            "RETURNING id, salary")) {
+                statement.setDouble(1, floor);
+                statement.setDouble(2, cap);
+                statement.setInt(3, minAge);
+                statement.setInt(4, maxAge);
+                statement.setDouble(5, floor);
+                statement.setDouble(6, cap);
+                SalaryUpdate update = readSalaryUpdate(statement);
+                connection.commit();
+                timer.rowsWritten(update.size());
+                getQueryCache().employeesChanged(update.getEmployeeIds());
+                return update;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return null;
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Moves every member of one department to another in one transaction; members of both keep a
+     * single membership in the target.
+     */
+    public static boolean moveDepartmentMembers(int fromDepartmentId, int toDepartmentId) {
+        OperationMetrics.Timer timer = MOVE_DEPARTMENT_MEMBERS.start();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (int departmentId : new int[]{fromDepartmentId, toDepartmentId}) {
+                    if (!departmentExists(connection, departmentId)) {
+                        System.err.println("Department with ID " + departmentId + " does not exist.");
+                        connection.rollback();
+                        return false;
+                    }
+                }
+                if (fromDepartmentId == toDepartmentId) {
+                    connection.rollback();
+                    return true;
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO employee_department (employee_id, department_id) " +
+                                "SELECT employee_id, ? FROM employee_department WHERE department_id = ?");
+                     PreparedStatement delete = connection.prepareStatement(
+                             "DELETE FROM employee_department WHERE department_id = ?")) {
+                    insert.setInt(1, toDepartmentId);
+                    insert.setInt(2, fromDepartmentId);
+                    timer.rowsWritten(insert.executeUpdate());
+                    delete.setInt(1, fromDepartmentId);
+                    timer.rowsWritten(delete.executeUpdate());
+                }
+                connection.commit();
+                getQueryCache().departmentsChanged(fromDepartmentId, toDepartmentId);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
+    private static SalaryUpdate readSalaryUpdate(PreparedStatement statement) throws SQLException {
+        SalaryUpdate update = new SalaryUpdate();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                update.add(resultSet.getInt(1), resultSet.getDouble(2));
+            }
         }
+        return update;
     }
     public static void removeEmployee(Employee employee) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = REMOVE_EMPLOYEE.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement("DELETE FROM employees WHERE id = ?")) {
             statement.setInt(1, employee.getId());
-            statement.executeUpdate();
+            timer.rowsWritten(statement.executeUpdate());
+            getQueryCache().employeesChanged(employee.getId());
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
     }
     public static void removeDepartment(Department department) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = REMOVE_DEPARTMENT.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement("DELETE FROM departments WHERE id = ?")) {
             statement.setInt(1, department.getId());
-            statement.executeUpdate();
+            timer.rowsWritten(statement.executeUpdate());
+            getQueryCache().departmentsChanged(department.getId());
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
     }
     public static void deleteEmployeeDepartmentsForDepartment(int departmentId) {
-        try (Connection connection = DriverManager.getConnection(URL);
+        OperationMetrics.Timer timer = DELETE_EMPLOYEE_DEPARTMENTS.start();
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement("DELETE FROM employee_department WHERE department_id = ?")) {
             statement.setInt(1, departmentId);
-            statement.executeUpdate();
+            timer.rowsWritten(statement.executeUpdate());
+            getQueryCache().departmentsChanged(departmentId);
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.stop();
         }
     }
     public static List<Employee> loadDepartmentEmployees(Department department) {
-        List<Employee> employees = new ArrayList<>();
+        OperationMetrics.Timer timer = LOAD_DEPARTMENT_EMPLOYEES.start();
+        QueryCache cache = getQueryCache();
+        int departmentId = department.getId();
+        List<Employee> employees = cache.getDepartmentEmployees(departmentId);
+        if (employees != null) {
+            timer.rowsRead(employees.size());
+            timer.stop();
+            return employees;
+        }
+        long generation = cache.generation();
+        employees = new ArrayList<>();
 
-        try (Connection connection = DriverManager.getConnection(URL);
+        try (Connection connection = getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT employees.id, employees.full_name, employees.age, employees.salary FROM employees " +
                              "JOIN employee_department ON employees.id = employee_department.employee_id " +
                              "WHERE employee_department.department_id = ?")) {
-            statement.setInt(1, department.getId());
+            statement.setInt(1, departmentId);
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
@@ -224,12 +871,250 @@ public class DatabaseManager {
                     employees.add(employee);
                 }
             }
+            cache.putDepartmentEmployees(generation, departmentId, employees);
         } catch (SQLException e) {
+            timer.failed();
             e.printStackTrace();
+        } finally {
+            timer.rowsRead(employees.size());
+            timer.stop();
         }
 
         return employees;
     }
+    /**
+     * Writes a {@link UnitOfWork.ChangeSet} in one transaction: inserts first so new rows have ids,
+     * then one batch per kind of change, with employee updates grouped by the set of changed columns.
+     * Updates and deletes of rows that were never inserted are skipped; a membership that refers to
+     * one fails the whole change set. On failure everything is rolled back and ids handed out during
+     * the attempt are reset to 0.
+     */
+    public static boolean applyChanges(UnitOfWork.ChangeSet changes) {
+        OperationMetrics.Timer timer = APPLY_CHANGES.start();
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            List<Department> insertedDepartments = new ArrayList<>();
+            List<Employee> insertedEmployees = new ArrayList<>();
+            try {
+                int rows = 0;
+                for (UnitOfWork.DepartmentChange change : changes.newDepartments) {
+                    change.department.setId(insertDepartment(connection, change.name));
+                    insertedDepartments.add(change.department);
+                    rows++;
+                }
+                if (!changes.newEmployees.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "INSERT INTO employees (full_name, age, salary) VALUES (?, ?, ?) RETURNING id")) {
+                        for (UnitOfWork.EmployeeChange change : changes.newEmployees) {
+                            statement.setString(1, change.fullName);
+                            statement.setInt(2, change.age);
+                            statement.setDouble(3, change.salary);
+                            try (ResultSet resultSet = statement.executeQuery()) {
+                                if (!resultSet.next()) {
+                                    throw new SQLException("Creating employee failed, no ID obtained.");
+                                }
+                                change.employee.setId(resultSet.getInt(1));
+                            }
+                            insertedEmployees.add(change.employee);
+                            rows++;
+                        }
+                    }
+                }
+                rows += updateEmployees(connection, changes.updatedEmployees);
+                if (!changes.renamedDepartments.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("UPDATE departments SET name = ? WHERE id = ?")) {
+                        for (UnitOfWork.DepartmentChange change : changes.renamedDepartments) {
+                            if (change.department.getId() == 0) {
+                                continue;
+                            }
+                            statement.setString(1, change.name);
+                            statement.setInt(2, change.department.getId());
+                            statement.addBatch();
+                        }
+                        rows += sum(statement.executeBatch());
+                    }
+                }
+                rows += writeMemberships(connection,
+                        "DELETE FROM employee_department WHERE employee_id = ? AND department_id = ?", changes.removedMemberships);
+                rows += writeMemberships(connection,
+                        "INSERT OR IGNORE INTO employee_department (employee_id, department_id) " +
+                                "SELECT e.id, d.id FROM employees e, departments d WHERE e.id = ? AND d.id = ?", changes.addedMemberships);
+                if (!changes.removedEmployees.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("DELETE FROM employees WHERE id = ?")) {
+                        for (Employee employee : changes.removedEmployees) {
+                            if (employee.getId() == 0) {
+                                continue;
+                            }
+                            statement.setInt(1, employee.getId());
+                            statement.addBatch();
+                        }
+                        rows += sum(statement.executeBatch());
+                    }
+                }
+                if (!changes.removedDepartments.isEmpty()) {
+                    try (PreparedStatement statement = connection.prepareStatement("DELETE FROM departments WHERE id = ?")) {
+                        for (Department department : changes.removedDepartments) {
+                            if (department.getId() == 0) {
+                                continue;
+                            }
+                            statement.setInt(1, department.getId());
+                            statement.addBatch();
+                        }
+                        rows += sum(statement.executeBatch());
+                    }
+                }
+                connection.commit();
+                timer.rowsWritten(rows);
+                invalidate(changes);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                for (Department department : insertedDepartments) {
+                    department.setId(0);
+                }
+                for (Employee employee : insertedEmployees) {
+                    employee.setId(0);
+                }
+                throw e;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
+    /**
+     * Drops the cached query results that a committed change set touched.
+     */
+    private static void invalidate(UnitOfWork.ChangeSet changes) {
+        QueryCache cache = getQueryCache();
+        if (!changes.newEmployees.isEmpty()) {
+            cache.employeesInserted();
+        }
+        IntHashSet employeeIds = new IntHashSet(changes.updatedEmployees.size() + changes.removedEmployees.size());
+        for (UnitOfWork.EmployeeChange change : changes.updatedEmployees) {
+            employeeIds.add(change.employee.getId());
+        }
+        for (Employee employee : changes.removedEmployees) {
+            employeeIds.add(employee.getId());
+        }
+        if (!employeeIds.isEmpty()) {
+            cache.employeesChanged(employeeIds.toSortedArray());
+        }
+        IntHashSet departmentIds = new IntHashSet();
+        for (List<UnitOfWork.MembershipChange> memberships : List.of(changes.removedMemberships, changes.addedMemberships)) {
+            for (UnitOfWork.MembershipChange change : memberships) {
+                departmentIds.add(change.department.getId());
+            }
+        }
+        for (Department department : changes.removedDepartments) {
+            departmentIds.add(department.getId());
+        }
+        if (!departmentIds.isEmpty()) {
+            cache.departmentsChanged(departmentIds.toSortedArray());
+        }
+    }
+    private static int updateEmployees(Connection connection, List<UnitOfWork.EmployeeChange> changes) throws SQLException {
+        Map<Integer, PreparedStatement> statements = new HashMap<>();
+        int rows = 0;
+        try {
+            for (UnitOfWork.EmployeeChange change : changes) {
+                if (change.employee.getId() == 0) {
+                    continue;
+                }
+                PreparedStatement statement = statements.get(change.fields);
+                if (statement == null) {
+                    statement = connection.prepareStatement(employeeUpdateSql(change.fields));
+                    statements.put(change.fields, statement);
+                }
+                int index = 1;
+                if ((change.fields & Employee.FULL_NAME) != 0) {
+                    statement.setString(index++, change.fullName);
+                }
+                if ((change.fields & Employee.AGE) != 0) {
+                    statement.setInt(index++, change.age);
+                }
+                if ((change.fields & Employee.SALARY) != 0) {
+                    statement.setDouble(index++, change.salary);
+                }
+                statement.setInt(index, change.employee.getId());
+                statement.addBatch();
+            }
+            for (PreparedStatement statement : statements.values()) {
+                rows += sum(statement.executeBatch());
+            }
+        } finally {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+        }
+        return rows;
+    }
+    private static String employeeUpdateSql(int fields) {
+        StringBuilder sql = new StringBuilder("UPDATE employees SET ");
+        if ((fields & Employee.FULL_NAME) != 0) {
+            sql.append("full_name = ?, ");
+        }
+        if ((fields & Employee.AGE) != 0) {
+            sql.append("age = ?, ");
+        }
+        if ((fields & Employee.SALARY) != 0) {
+            sql.append("salary = ?, ");
+        }
+        sql.setLength(sql.length() - 2);
+        return sql.append(" WHERE id = ?").toString();
+    }
+    private static int writeMemberships(Connection connection, String sql, List<UnitOfWork.MembershipChange> changes) throws SQLException {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (UnitOfWork.MembershipChange change : changes) {
+                statement.setInt(1, savedId(change.employee));
+                statement.setInt(2, savedId(change.department));
+                statement.addBatch();
+            }
+            return sum(statement.executeBatch());
+        }
+    }
+    private static int savedId(Employee employee) throws SQLException {
+        if (employee.getId() == 0) {
+            throw new SQLException("Employee " + employee.getFullName() + " has not been saved yet.");
+        }
+        return employee.getId();
+    }
+    private static int savedId(Department department) throws SQLException {
+        if (department.getId() == 0) {
+            throw new SQLException("Department " + department.getName() + " has not been saved yet.");
+        }
+        return department.getId();
+    }
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+    private static int insertDepartment(Connection connection, Department department) throws SQLException {
+        return insertDepartment(connection, department.getName());
+    }
+    private static int insertDepartment(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO departments (name) VALUES (?) RETURNING id")) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt(1);
+                }
+                throw new SQLException("Creating department failed, no ID obtained.");
+            }
+        }
+    }
     private static boolean employeeExists(Connection connection, int employeeId) {
         try (PreparedStatement statement = connection.prepareStatement(
                 "SELECT id FROM employees WHERE id = ?")) {
@@ -242,6 +1127,25 @@ public class DatabaseManager {
             return false;
         }
     }
+    public static boolean departmentExists(int departmentId) {
+        OperationMetrics.Timer timer = DEPARTMENT_EXISTS.start();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id FROM departments WHERE id = ?")) {
+            statement.setInt(1, departmentId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                boolean exists = resultSet.next();
+                timer.rowsRead(exists ? 1 : 0);
+                return exists;
+            }
+        } catch (SQLException e) {
+            timer.failed();
+            e.printStackTrace();
+            return false;
+        } finally {
+            timer.stop();
+        }
+    }
     private static boolean departmentExists(Connection connection, int departmentId) {
         try (PreparedStatement statement = connection.prepareStatement(
                 "SELECT id FROM departments WHERE id = ?")) {
@@ -0,0 +1,93 @@
+package org.enterprise;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of per-operation database metrics. Each operation is published as the JMX MBean
+ * {@code org.enterprise:type=DatabaseManager,operation=<name>}, the active connection pool as
+ * {@code org.enterprise:type=ConnectionPool} and its query cache as {@code org.enterprise:type=QueryCache}. Setting {@code enterprise.metrics.logIntervalSeconds}
+ * additionally prints a summary line per operation at that interval.
+ */
+public class DatabaseMetrics {
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentSkipListMap<>();
+    private static final String POOL_NAME = "org.enterprise:type=ConnectionPool";
+    private static final String QUERY_CACHE_NAME = "org.enterprise:type=QueryCache";
+    private static volatile QueryCache queryCache;
+    private static ScheduledExecutorService logger;
+
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, key -> {
+            OperationMetrics metrics = new OperationMetrics(key);
+            register(metrics, "org.enterprise:type=DatabaseManager,operation=" + key);
+            return metrics;
+        });
+    }
+    public static Map<String, OperationMetrics> getOperations() {
+        return OPERATIONS;
+    }
+    public static synchronized void startLogging(long intervalSeconds) {
+        if (logger != null || intervalSeconds <= 0) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(DatabaseMetrics::logSummary, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    public static void startLoggingFromSystemProperties() {
+        startLogging(Long.getLong("enterprise.metrics.logIntervalSeconds", 0));
+    }
+    public static void logSummary() {
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            if (metrics.getCalls() > 0) {
+                System.out.println("db." + metrics);
+            }
+        }
+        QueryCache cache = queryCache;
+        if (cache != null && cache.getHits() + cache.getMisses() > 0) {
+            System.out.println("db." + cache);
+        }
+    }
+    static void registerPool(ConnectionPool pool) {
+        replace(pool, POOL_NAME);
+    }
+    static void registerQueryCache(QueryCache cache) {
+        queryCache = cache;
+        replace(cache, QUERY_CACHE_NAME);
+    }
+    private static void replace(Object bean, String objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+        } catch (InstanceNotFoundException | InstanceAlreadyExistsException ignored) {
+            // Another thread swapped the bean at the same time; its registration wins.
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+    private static void register(Object bean, String objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(objectName));
+        } catch (InstanceAlreadyExistsException ignored) {
+            // Already published, e.g. by a second class loader in the same JVM.
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
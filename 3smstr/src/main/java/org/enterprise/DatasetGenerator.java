@@ -0,0 +1,313 @@
+package org.enterprise;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills an empty SQLite file with a synthetic enterprise: departments, employees with Russian
+ * names, ages from 18 to 65 and salaries drawn from a {@link SalaryDistribution}, and memberships
+ * in one or more departments. The output depends only on the settings and the seed, so two runs
+ * produce the same rows with the same ids. The schema is created by {@link SchemaMigrator}, as for
+ * any other database; indexes and triggers are dropped while the rows are written and recreated
+ * from their stored definitions afterwards.
+ */
+public class DatasetGenerator {
+    public interface ProgressListener {
+        void onProgress(long employees, long totalEmployees);
+    }
+
+    public enum SalaryDistribution {
+        /** Evenly spread between the minimum and the maximum. */
+        UNIFORM,
+        /** Bell curve around the middle of the range, three standard deviations to either end. */
+        NORMAL,
+        /** Long tail of high salaries: most employees earn near the lower third of the log range. */
+        LOGNORMAL
+    }
+
+    public static class Result {
+        private final int departments;
+        private final long employees;
+        private final long memberships;
+        private final long elapsedMillis;
+
+        Result(int departments, long employees, long memberships, long elapsedMillis) {
+            this.departments = departments;
+            this.employees = employees;
+            this.memberships = memberships;
+            this.elapsedMillis = elapsedMillis;
+        }
+        public int getDepartments() {
+            return departments;
+        }
+        public long getEmployees() {
+            return employees;
+        }
+        public long getMemberships() {
+            return memberships;
+        }
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        @Override
+        public String toString() {
+            long rate = elapsedMillis == 0 ? employees : employees * 1000 / elapsedMillis;
+            return "Создано отделов: " + departments + ", сотрудников: " + employees +
+                    ", связей с отделами: " + memberships + ", время: " + elapsedMillis + " мс (" + rate + " строк/с)";
+        }
+    }
+
+    private static final int CHUNK_SIZE = 100_000;
+    private static final String[] DEPARTMENT_NAMES = {"Бухгалтерия", "Разработка", "Тестирование", "Продажи",
+            "Маркетинг", "Логистика", "Закупки", "Кадры", "Юридический отдел", "Поддержка", "Склад", "Производство"};
+    // Male and female forms side by side.
+    private static final String[][] SURNAMES = {{"Иванов", "Иванова"}, {"Смирнов", "Смирнова"}, {"Кузнецов", "Кузнецова"},
+            {"Попов", "Попова"}, {"Васильев", "Васильева"}, {"Петров", "Петрова"}, {"Соколов", "Соколова"},
+            {"Михайлов", "Михайлова"}, {"Новиков", "Новикова"}, {"Фёдоров", "Фёдорова"}, {"Морозов", "Морозова"},
+            {"Волков", "Волкова"}, {"Алексеев", "Алексеева"}, {"Лебедев", "Лебедева"}, {"Семёнов", "Семёнова"},
+            {"Егоров", "Егорова"}, {"Павлов", "Павлова"}, {"Козлов", "Козлова"}, {"Степанов", "Степанова"},
+            {"Николаев", "Николаева"}};
+    private static final String[][] FIRST_NAMES = {{"Александр", "Анна"}, {"Дмитрий", "Мария"}, {"Максим", "Елена"},
+            {"Сергей", "Ольга"}, {"Андрей", "Татьяна"}, {"Алексей", "Наталья"}, {"Артём", "Ирина"}, {"Илья", "Екатерина"},
+            {"Кирилл", "Светлана"}, {"Михаил", "Юлия"}, {"Никита", "Дарья"}, {"Егор", "Алёна"}, {"Иван", "Ксения"},
+            {"Павел", "Виктория"}, {"Роман", "Полина"}};
+    private static final String[][] PATRONYMICS = {{"Александрович", "Александровна"}, {"Дмитриевич", "Дмитриевна"},
+            {"Сергеевич", "Сергеевна"}, {"Андреевич", "Андреевна"}, {"Алексеевич", "Алексеевна"},
+            {"Иванович", "Ивановна"}, {"Михайлович", "Михайловна"}, {"Николаевич", "Николаевна"},
+            {"Петрович", "Петровна"}, {"Владимирович", "Владимировна"}};
+
+    private int departments = 100;
+    private long employees = 100_000;
+    private double membershipsPerEmployee = 1.2;
+    private SalaryDistribution salaryDistribution = SalaryDistribution.LOGNORMAL;
+    private double minSalary = 20_000;
+    private double maxSalary = 300_000;
+    private long seed = 42;
+    private ProgressListener listener = (done, total) -> {
+    };
+
+    public int getDepartments() {
+        return departments;
+    }
+    public void setDepartments(int departments) {
+        this.departments = departments;
+    }
+    public long getEmployees() {
+        return employees;
+    }
+    public void setEmployees(long employees) {
+        this.employees = employees;
+    }
+    public double getMembershipsPerEmployee() {
+        return membershipsPerEmployee;
+    }
+    /**
+     * Average number of departments per employee: 1.2 puts every employee in one department and
+     * one in five in a second one. Values below 1 leave some employees without a department.
+     */
+    public void setMembershipsPerEmployee(double membershipsPerEmployee) {
+        this.membershipsPerEmployee = membershipsPerEmployee;
+    }
+    public SalaryDistribution getSalaryDistribution() {
+        return salaryDistribution;
+    }
+    public void setSalaryDistribution(SalaryDistribution salaryDistribution) {
+        this.salaryDistribution = salaryDistribution;
+    }
+    public double getMinSalary() {
+        return minSalary;
+    }
+    public void setMinSalary(double minSalary) {
+        this.minSalary = minSalary;
+    }
+    public double getMaxSalary() {
+        return maxSalary;
+    }
+    public void setMaxSalary(double maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+    public long getSeed() {
+        return seed;
+    }
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+    /**
+     * Generates into {@code file}, which must not exist or hold no employees and departments. A new
+     * file is deleted again if generation fails.
+     */
+    public Result generate(Path file) throws IOException, SQLException {
+        if (departments < 0 || employees < 0 || membershipsPerEmployee < 0 || minSalary > maxSalary) {
+            throw new IllegalArgumentException("Invalid dataset settings");
+        }
+        boolean created = !Files.exists(file);
+        try {
+            return generateInto(file);
+        } catch (SQLException | RuntimeException e) {
+            if (created) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+    private Result generateInto(Path file) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement statement = connection.createStatement()) {
+            SchemaMigrator.migrate(connection);
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT (SELECT count(*) FROM employees) + (SELECT count(*) FROM departments)")) {
+                if (resultSet.next() && resultSet.getLong(1) > 0) {
+                    throw new SQLException(file + " already contains data");
+                }
+            }
+            // The file is unusable until generation finishes anyway, so durability is not needed.
+            statement.execute("PRAGMA journal_mode = OFF");
+            statement.execute("PRAGMA synchronous = OFF");
+            statement.execute("PRAGMA cache_size = -262144");
+            connection.setAutoCommit(false);
+            List<String> deferred = dropDeferredObjects(statement);
+
+            SplittableRandom random = new SplittableRandom(seed);
+            insertDepartments(connection);
+            long memberships = insertEmployees(connection, random);
+            connection.commit();
+
+            statement.execute(SchemaMigrator.FILL_NAME_INDEX);
+            for (String sql : deferred) {
+                statement.execute(sql);
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            statement.execute("PRAGMA optimize");
+            return new Result(departments, employees, memberships, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    /**
+     * Drops the secondary indexes, the full-text insert trigger and the change log triggers,
+     * returning the statements that recreate them. Building an index once over all rows is several
+     * times faster than maintaining it row by row, and a freshly generated database has no changes
+     * for other processes to pick up.
+     */
+    private static List<String> dropDeferredObjects(Statement statement) throws SQLException {
+        List<String> names = new ArrayList<>();
+        List<String> definitions = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery("SELECT type, name, sql FROM sqlite_master " +
+                "WHERE type = 'index' AND sql IS NOT NULL AND tbl_name IN ('employees', 'employee_department') " +
+                "OR type = 'trigger' AND (name = 'employees_fts_insert' OR name LIKE 'change\\_log\\_%' ESCAPE '\\')")) {
+            while (resultSet.next()) {
+                names.add("DROP " + resultSet.getString(1).toUpperCase() + " " + resultSet.getString(2));
+                definitions.add(resultSet.getString(3));
+            }
+        }
+        for (String drop : names) {
+            statement.execute(drop);
+        }
+        return definitions;
+    }
+    private void insertDepartments(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO departments (id, name) VALUES (?, ?)")) {
+            for (int id = 1; id <= departments; id++) {
+                int round = (id - 1) / DEPARTMENT_NAMES.length;
+                statement.setInt(1, id);
+                statement.setString(2, DEPARTMENT_NAMES[(id - 1) % DEPARTMENT_NAMES.length] + (round == 0 ? "" : " " + (round + 1)));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+    private long insertEmployees(Connection connection, SplittableRandom random) throws SQLException {
+        long memberships = 0;
+        int wholeMemberships = (int) membershipsPerEmployee;
+        double extraMembership = membershipsPerEmployee - wholeMemberships;
+        int[] chosen = new int[Math.min(departments, wholeMemberships + 1)];
+        StringBuilder name = new StringBuilder(48);
+        try (PreparedStatement employee = connection.prepareStatement(
+                "INSERT INTO employees (id, full_name, age, salary) VALUES (?, ?, ?, ?)");
+             PreparedStatement membership = connection.prepareStatement(
+                     "INSERT INTO employee_department (employee_id, department_id) VALUES (?, ?)")) {
+            for (long id = 1; id <= employees; id++) {
+                int female = random.nextInt(2);
+                name.setLength(0);
+                name.append(SURNAMES[random.nextInt(SURNAMES.length)][female]).append(' ')
+                        .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)][female]).append(' ')
+                        .append(PATRONYMICS[random.nextInt(PATRONYMICS.length)][female]);
+                employee.setLong(1, id);
+                employee.setString(2, name.toString());
+                employee.setInt(3, 18 + random.nextInt(48));
+                employee.setDouble(4, nextSalary(random));
+                employee.addBatch();
+
+                int count = Math.min(departments, wholeMemberships + (random.nextDouble() < extraMembership ? 1 : 0));
+                for (int i = 0; i < count; i++) {
+                    int department;
+                    do {
+                        department = 1 + random.nextInt(departments);
+                    } while (contains(chosen, i, department));
+                    chosen[i] = department;
+                }
+                Arrays.sort(chosen, 0, count);
+                for (int i = 0; i < count; i++) {
+                    membership.setLong(1, id);
+                    membership.setInt(2, chosen[i]);
+                    membership.addBatch();
+                }
+                memberships += count;
+
+                if (id % CHUNK_SIZE == 0) {
+                    employee.executeBatch();
+                    membership.executeBatch();
+                    connection.commit();
+                    listener.onProgress(id, employees);
+                }
+            }
+            employee.executeBatch();
+            membership.executeBatch();
+        }
+        if (employees % CHUNK_SIZE != 0) {
+            listener.onProgress(employees, employees);
+        }
+        return memberships;
+    }
+    private double nextSalary(SplittableRandom random) {
+        double salary;
+        switch (salaryDistribution) {
+            case UNIFORM:
+                salary = minSalary + random.nextDouble() * (maxSalary - minSalary);
+                break;
+            case NORMAL:
+                salary = random.nextGaussian((minSalary + maxSalary) / 2, (maxSalary - minSalary) / 6);
+                break;
+            case LOGNORMAL:
+                double low = Math.log(Math.max(minSalary, 1));
+                double range = Math.log(Math.max(maxSalary, 1)) - low;
+                salary = Math.exp(random.nextGaussian(low + range / 3, range / 6));
+                break;
+            default:
+                throw new IllegalStateException("Unknown distribution: " + salaryDistribution);
+        }
+        return Math.round(Math.min(maxSalary, Math.max(minSalary, salary)) * 100) / 100.0;
+    }
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
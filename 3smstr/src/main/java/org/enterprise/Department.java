@@ -1,63 +1,448 @@
 package org.enterprise;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class Department {
-    private int id;
-    private String name;
-    private List<Employee> employees;
+/**
+ * A department and its members. Changes are made under the department's lock; a change that
+ * spans two departments takes both locks in a fixed order. {@link #getEmployees()} hands out an
+ * immutable snapshot that is rebuilt on the first read after a change, so readers neither lock
+ * nor see a list that changes under them.
+ * <p>
+ * Members are kept by id: adding an employee who is already a member does nothing, and removing
+ * or moving works with any instance carrying the member's id.
+ */
+public final class Department {
+    private static final AtomicLong LOCK_ORDER = new AtomicLong();
+
+    private volatile int id;
+    private volatile String name;
+    private final EmployeeSet employees = new EmployeeSet();
+    private volatile List<Employee> snapshot = List.of();
+    private volatile Enterprise enterprise;
+    private volatile boolean nameDirty;
+    private EmployeeSet addedEmployees;
+    private EmployeeSet removedEmployees;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long lockOrder = LOCK_ORDER.incrementAndGet();
+    private final SalaryStatistics salaryStatistics;
+    private final EmployeeListener memberListener;
 
     public Department(String name) {
         this.name = name;
-        this.employees = new ArrayList<>();
+        // Created last, as the statistics read the members through this department.
+        this.salaryStatistics = new SalaryStatistics(this::getEmployees);
+        this.memberListener = new EmployeeListener() {
+            @Override
+            public void salaryChanged(Employee employee, double oldSalary, double newSalary) {
+                salaryStatistics.replace(oldSalary, newSalary);
+            }
+            @Override
+            public void idChanged(Employee employee, int oldId) {
+                memberIdChanged(employee, oldId);
+            }
+        };
     }
     public int getId() {
         return id;
     }
     public void setId(int id) {
-        this.id = id;
+        lock.lock();
+        try {
+            int oldId = this.id;
+            this.id = id;
+            if (enterprise != null && oldId != id) {
+                enterprise.departmentIdChanged(this, oldId);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
     public String getName() {
         return name;
     }
     public void setName(String name) {
-        this.name = name;
+        lock.lock();
+        try {
+            String oldName = this.name;
+            this.name = name;
+            if (!Objects.equals(oldName, name)) {
+                nameDirty = true;
+            }
+            if (enterprise != null) {
+                enterprise.departmentRenamed(this, oldName);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
     public List<Employee> getEmployees() {
-        return employees;
+        List<Employee> current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                current = snapshot;
+                if (current == null) {
+                    current = employees.toList();
+                    snapshot = current;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
     }
     public void setEmployees(List<Employee> employees) {
-        this.employees = employees;
+        lock.lock();
+        try {
+            for (Employee employee : this.employees) {
+                employee.removeListener(memberListener);
+                recordRemoved(employee);
+                if (enterprise != null) {
+                    enterprise.employeeRemoved(this, employee);
+                }
+            }
+            this.employees.clear();
+            snapshot = null;
+            salaryStatistics.clear();
+            for (Employee employee : employees) {
+                Employee member = insert(canonical(employee));
+                if (member != null) {
+                    recordAdded(member);
+                    if (enterprise != null) {
+                        enterprise.employeeAdded(this, member);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
     }
     public void addEmployee(Employee employee) {
-        employees.add(employee);
+        lock.lock();
+        try {
+            Employee member = attachMember(canonical(employee));
+            if (member != null) {
+                recordAdded(member);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Adds a member that is already stored in the database, without recording a membership change.
+     */
+    void attachEmployee(Employee employee) {
+        attachMember(employee);
+    }
+    private Employee attachMember(Employee employee) {
+        lock.lock();
+        try {
+            Employee member = insert(employee);
+            if (member != null && enterprise != null) {
+                enterprise.employeeAdded(this, member);
+            }
+            return member;
+        } finally {
+            lock.unlock();
+        }
     }
     public void removeEmployee(Employee employee) {
-        employees.remove(employee);
+        lock.lock();
+        try {
+            Employee member = detachMember(employee);
+            if (member != null) {
+                recordRemoved(member);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
-    public double calculateTotalSalary() {
-        double totalSalary = 0;
-        for (Employee employee : employees) {
-            totalSalary += employee.getSalary();
+    /**
+     * Removes a member whose membership is already gone from the database, without recording a
+     * membership change.
+     */
+    boolean detachEmployee(Employee employee) {
+        return detachMember(employee) != null;
+    }
+    private Employee detachMember(Employee employee) {
+        lock.lock();
+        try {
+            Employee member = delete(employee);
+            if (member != null && enterprise != null) {
+                enterprise.employeeRemoved(this, member);
+            }
+            return member;
+        } finally {
+            lock.unlock();
         }
-        return totalSalary;
     }
-    public void saveToDatabase() {
-        int departmentId = getId();
-        if (departmentId == 0) {
-            departmentId = DatabaseManager.saveDepartment(this);
-            if (departmentId != -1) {
-                setId(departmentId);
-            } else {
-                System.err.println("Failed to save department to the database.");
+    /**
+     * Moves {@code employee} from this department to {@code target} as one change: no reader of
+     * either department or of {@link Enterprise#getDepartmentsOf} sees it in both or in neither.
+     * Returns false, changing nothing, if the employee is not a member here.
+     */
+    public boolean moveEmployeeTo(Employee employee, Department target) {
+        if (target == this) {
+            return containsEmployee(employee);
+        }
+        lockBoth(this, target);
+        try {
+            Employee member = delete(employee);
+            if (member == null) {
+                return false;
+            }
+            recordRemoved(member);
+            if (target.insert(member) != null) {
+                target.recordAdded(member);
+            }
+            reindexMove(member, target);
+            return true;
+        } finally {
+            unlockBoth(this, target);
+        }
+    }
+    /**
+     * Moves every member to {@code target} after the database did the same, without recording
+     * membership changes; members already in {@code target} only leave this department.
+     */
+    void moveStoredMembersTo(Department target) {
+        if (target == this) {
+            return;
+        }
+        lockBoth(this, target);
+        try {
+            for (Employee employee : employees) {
+                employee.removeListener(memberListener);
+                target.insert(employee);
+                reindexMove(employee, target);
+            }
+            employees.clear();
+            snapshot = null;
+            salaryStatistics.clear();
+        } finally {
+            unlockBoth(this, target);
+        }
+    }
+    public boolean containsEmployee(Employee employee) {
+        lock.lock();
+        try {
+            return employees.contains(employee);
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Registers this department's members with {@code enterprise}, which it now belongs to.
+     */
+    void joinEnterprise(Enterprise enterprise) {
+        lock.lock();
+        try {
+            this.enterprise = enterprise;
+            for (Employee employee : employees) {
+                enterprise.employeeAdded(this, employee);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    void leaveEnterprise() {
+        lock.lock();
+        try {
+            for (Employee employee : employees) {
+                enterprise.employeeRemoved(this, employee);
+            }
+            enterprise = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Returns the enterprise's instance with the id of {@code employee}, so that a member added
+     * from a fresh copy is the one the rest of the model sees; {@code employee} itself if there is none.
+     */
+    private Employee canonical(Employee employee) {
+        Enterprise current = enterprise;
+        Employee known = current == null || employee.getId() == 0 ? null : current.findEmployeeById(employee.getId());
+        return known != null ? known : employee;
+    }
+    /**
+     * Adds {@code employee} and returns it, or null if the department already has a member with its id.
+     */
+    private Employee insert(Employee employee) {
+        if (!employees.add(employee)) {
+            return null;
+        }
+        // Invalidated before the statistics change, so a refresh of the extremes sees the new member.
+        snapshot = null;
+        employee.attach(memberListener, salaryStatistics);
+        return employee;
+    }
+    /**
+     * Removes the member with the id of {@code employee} and returns it, or null if there is none.
+     */
+    private Employee delete(Employee employee) {
+        Employee member = employees.remove(employee);
+        if (member == null) {
+            return null;
+        }
+        snapshot = null;
+        member.detach(memberListener, salaryStatistics);
+        return member;
+    }
+    /**
+     * Indexes a member under the id it was given, so that other instances with that id find it, and
+     * moves its entry in the enterprise indexes, which skip members without id.
+     */
+    private void memberIdChanged(Employee employee, int oldId) {
+        lock.lock();
+        try {
+            if (!employees.idChanged(employee, oldId)) {
                 return;
             }
+            if (addedEmployees != null) {
+                addedEmployees.idChanged(employee, oldId);
+            }
+            if (removedEmployees != null) {
+                removedEmployees.idChanged(employee, oldId);
+            }
+            if (enterprise != null) {
+                enterprise.employeeIdChanged(this, employee, oldId);
+            }
+        } finally {
+            lock.unlock();
         }
-        DatabaseManager.deleteEmployeeDepartmentsForDepartment(departmentId);
-
-        for (Employee employee : employees) {
-            DatabaseManager.saveEmployeeDepartment(employee.getId(), departmentId);
+    }
+    private void reindexMove(Employee employee, Department target) {
+        if (enterprise != null && enterprise == target.enterprise) {
+            enterprise.employeeMoved(this, target, employee);
+            return;
+        }
+        if (target.enterprise != null) {
+            target.enterprise.employeeAdded(target, employee);
+        }
+        if (enterprise != null) {
+            enterprise.employeeRemoved(this, employee);
+        }
+    }
+    private static void lockBoth(Department first, Department second) {
+        if (first.lockOrder > second.lockOrder) {
+            Department swap = first;
+            first = second;
+            second = swap;
+        }
+        first.lock.lock();
+        second.lock.lock();
+    }
+    private static void unlockBoth(Department first, Department second) {
+        second.lock.unlock();
+        first.lock.unlock();
+    }
+    /**
+     * Returns true if the name or the membership changed since the department was loaded or last
+     * written by a {@link UnitOfWork}. Adding and then removing the same employee cancels out.
+     */
+    public boolean isDirty() {
+        return nameDirty || hasMembershipChanges();
+    }
+    boolean isNameDirty() {
+        return nameDirty;
+    }
+    boolean hasMembershipChanges() {
+        lock.lock();
+        try {
+            return addedEmployees != null && !addedEmployees.isEmpty()
+                    || removedEmployees != null && !removedEmployees.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+    Set<Employee> getAddedEmployees() {
+        lock.lock();
+        try {
+            return addedEmployees == null ? Collections.emptySet() : new LinkedHashSet<>(addedEmployees.toList());
+        } finally {
+            lock.unlock();
+        }
+    }
+    Set<Employee> getRemovedEmployees() {
+        lock.lock();
+        try {
+            return removedEmployees == null ? Collections.emptySet() : new LinkedHashSet<>(removedEmployees.toList());
+        } finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Takes a name already stored in the database; an unsaved rename is kept as it is.
+     */
+    void applyStoredName(String name) {
+        lock.lock();
+        try {
+            if (!nameDirty) {
+                setName(name);
+                nameDirty = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    void markNameDirty() {
+        nameDirty = true;
+    }
+    void markClean() {
+        lock.lock();
+        try {
+            nameDirty = false;
+            addedEmployees = null;
+            removedEmployees = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    void recordAdded(Employee employee) {
+        lock.lock();
+        try {
+            if (removedEmployees == null || removedEmployees.remove(employee) == null) {
+                if (addedEmployees == null) {
+                    addedEmployees = new EmployeeSet();
+                }
+                addedEmployees.add(employee);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    void recordRemoved(Employee employee) {
+        lock.lock();
+        try {
+            if (addedEmployees == null || addedEmployees.remove(employee) == null) {
+                if (removedEmployees == null) {
+                    removedEmployees = new EmployeeSet();
+                }
+                removedEmployees.add(employee);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    Enterprise getEnterprise() {
+        return enterprise;
+    }
+    public double calculateTotalSalary() {
+        return salaryStatistics.getSum().doubleValue();
+    }
+    public SalaryStatistics getSalaryStatistics() {
+        return salaryStatistics;
+    }
+    public void saveToDatabase() {
+        if (!Repositories.get().saveDepartmentMembers(this, getEmployees())) {
+            System.err.println("Failed to save department to the database.");
         }
     }
     @Override
@@ -66,7 +451,7 @@ public class Department {
     }
     public String getFormattedEmployeeList() {
         StringBuilder employeeList = new StringBuilder("Сотрудники:\n");
-        for (Employee employee : employees) {
+        for (Employee employee : getEmployees()) {
             employeeList.append("(").append(employee.getId()).append(") ").append(employee.getFullName()).append(",\n");
         }
         return employeeList.toString();
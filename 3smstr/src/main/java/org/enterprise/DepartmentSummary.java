@@ -0,0 +1,26 @@
+package org.enterprise;
+
+public class DepartmentSummary {
+    private final int id;
+    private final String name;
+    private final SalaryTotals salaries;
+
+    public DepartmentSummary(int id, String name, SalaryTotals salaries) {
+        this.id = id;
+        this.name = name;
+        this.salaries = salaries;
+    }
+    public int getId() {
+        return id;
+    }
+    public String getName() {
+        return name;
+    }
+    public SalaryTotals getSalaries() {
+        return salaries;
+    }
+    @Override
+    public String toString() {
+        return "Название: " + name + ", " + salaries;
+    }
+}
@@ -1,10 +1,26 @@
 package org.enterprise;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An employee of the enterprise. Fields are volatile and all changes are made under the
+ * employee's monitor, so a salary change and its notification to the aggregates happen as one
+ * step with respect to {@link #attach} and {@link #detach}.
+ */
 public class Employee {
-    private int id;
-    private String fullName;
-    private int age;
-    private double salary;
+    public static final int FULL_NAME = 1;
+    public static final int AGE = 1 << 1;
+    public static final int SALARY = 1 << 2;
+
+    private volatile int id;
+    private volatile String fullName;
+    private volatile int age;
+    private volatile double salary;
+    private List<EmployeeListener> listeners;
+    private volatile int dirtyFields;
+    private volatile int nullFields;
 
     public Employee(String fullName, int age, double salary) {
         this.fullName = fullName;
@@ -15,25 +31,119 @@ public class Employee {
         return id;
     }
     public void setId(int id) {
-        this.id = id;
+        int oldId;
+        EmployeeListener[] notified;
+        synchronized (this) {
+            oldId = this.id;
+            this.id = id;
+            notified = oldId == id || listeners == null ? null : listeners.toArray(new EmployeeListener[0]);
+        }
+        // Listeners may take a department lock, which is held while members attach under this monitor.
+        if (notified != null) {
+            for (EmployeeListener listener : notified) {
+                listener.idChanged(this, oldId);
+            }
+        }
     }
     public String getFullName() {
         return fullName;
     }
-    public void setFullName(String fullName) {
+    public synchronized void setFullName(String fullName) {
+        if (!Objects.equals(this.fullName, fullName)) {
+            dirtyFields |= FULL_NAME;
+        }
         this.fullName = fullName;
     }
     public int getAge() {
         return age;
     }
-    public void setAge(int age) {
+    public synchronized void setAge(int age) {
+        if (this.age != age) {
+            dirtyFields |= AGE;
+        }
+        nullFields &= ~AGE;
         this.age = age;
     }
     public double getSalary() {
         return salary;
     }
-    public void setSalary(double salary) {
+    public synchronized void setSalary(double salary) {
+        double oldSalary = this.salary;
+        nullFields &= ~SALARY;
         this.salary = salary;
+        if (oldSalary != salary) {
+            dirtyFields |= SALARY;
+        }
+        if (listeners != null && oldSalary != salary) {
+            for (EmployeeListener listener : listeners) {
+                listener.salaryChanged(this, oldSalary, salary);
+            }
+        }
+    }
+    /**
+     * Returns the {@link #FULL_NAME}, {@link #AGE} and {@link #SALARY} bits of the fields changed
+     * since the employee was loaded or last written by a {@link UnitOfWork}.
+     */
+    public int getDirtyFields() {
+        return dirtyFields;
+    }
+    public boolean isDirty() {
+        return dirtyFields != 0;
+    }
+    /**
+     * Takes values already stored in the database for the fields without unsaved local changes.
+     */
+    synchronized void applyStoredValues(String fullName, int age, double salary) {
+        int dirty = dirtyFields;
+        if ((dirty & FULL_NAME) == 0) {
+            setFullName(fullName);
+        }
+        if ((dirty & AGE) == 0) {
+            setAge(age);
+        }
+        if ((dirty & SALARY) == 0) {
+            setSalary(salary);
+        }
+        dirtyFields = dirty;
+    }
+    /**
+     * Records that the {@link #AGE} or {@link #SALARY} column was NULL when the employee was read;
+     * the field then holds 0 until it is set.
+     */
+    synchronized void markNull(int fields) {
+        nullFields |= fields;
+    }
+    boolean isNull(int field) {
+        return (nullFields & field) != 0;
+    }
+    synchronized void markDirty(int fields) {
+        dirtyFields |= fields;
+    }
+    synchronized void markClean() {
+        dirtyFields = 0;
+    }
+    synchronized void addListener(EmployeeListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+        }
+        listeners.add(listener);
+    }
+    synchronized void removeListener(EmployeeListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+    /**
+     * Starts notifying {@code listener} and adds the current salary to {@code statistics}, with no
+     * salary change in between.
+     */
+    synchronized void attach(EmployeeListener listener, SalaryStatistics statistics) {
+        addListener(listener);
+        statistics.add(salary);
+    }
+    synchronized void detach(EmployeeListener listener, SalaryStatistics statistics) {
+        removeListener(listener);
+        statistics.remove(salary);
     }
     @Override
     public String toString() {
@@ -0,0 +1,237 @@
+package org.enterprise;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only columnar snapshot of the {@code employees} table for analytics. Rows are ordered by id
+ * and stored as parallel primitive arrays; names are dictionary-encoded. Row sets such as department
+ * membership are {@link BitSet}s over row positions. Scans are plain counted loops over primitive
+ * arrays with no boxing or pointer chasing; the filters set bits conditionally and stay scalar, and
+ * the total salary sum splits the additions over four accumulators.
+ */
+public class EmployeeColumns {
+    private final EnterpriseRepository repository;
+    private int size;
+    private int[] ids;
+    private int[] ages;
+    private double[] salaries;
+    private int[] nameCodes;
+    private String[] dictionary;
+
+    private EmployeeColumns(EnterpriseRepository repository, int capacity) {
+        this.repository = repository;
+        ids = new int[capacity];
+        ages = new int[capacity];
+        salaries = new double[capacity];
+        nameCodes = new int[capacity];
+    }
+    public static EmployeeColumns load() {
+        return load(Repositories.get());
+    }
+    public static EmployeeColumns load(EnterpriseRepository repository) {
+        EmployeeColumns columns = new EmployeeColumns(repository, Math.max(16, repository.countEmployees()));
+        Map<String, Integer> codes = new HashMap<>();
+        repository.scanEmployees((id, fullName, age, salary) -> {
+            Integer code = codes.get(fullName);
+            if (code == null) {
+                code = codes.size();
+                codes.put(fullName, code);
+            }
+            columns.append(id, code, age, salary);
+        });
+        columns.dictionary = new String[codes.size()];
+        for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+            columns.dictionary[entry.getValue()] = entry.getKey();
+        }
+        columns.trim();
+        return columns;
+    }
+    public int size() {
+        return size;
+    }
+    public int getId(int row) {
+        return ids[row];
+    }
+    public int getAge(int row) {
+        return ages[row];
+    }
+    public double getSalary(int row) {
+        return salaries[row];
+    }
+    public String getName(int row) {
+        return dictionary[nameCodes[row]];
+    }
+    public int dictionarySize() {
+        return dictionary.length;
+    }
+    public int rowOf(int employeeId) {
+        return Arrays.binarySearch(ids, 0, size, employeeId);
+    }
+    public BitSet departmentBitmap(int departmentId) {
+        BitSet rows = new BitSet(size);
+        repository.scanDepartmentEmployeeIds(departmentId, employeeId -> {
+            int row = rowOf(employeeId);
+            if (row >= 0) {
+                rows.set(row);
+            }
+        });
+        return rows;
+    }
+    public BitSet filterSalaryBetween(double minSalary, double maxSalary) {
+        BitSet rows = new BitSet(size);
+        double[] salaries = this.salaries;
+        for (int row = 0; row < size; row++) {
+            double salary = salaries[row];
+            if (salary >= minSalary && salary <= maxSalary) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+    public BitSet filterAgeBetween(int minAge, int maxAge) {
+        BitSet rows = new BitSet(size);
+        int[] ages = this.ages;
+        for (int row = 0; row < size; row++) {
+            int age = ages[row];
+            if (age >= minAge && age <= maxAge) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+    public double sumSalary() {
+        double[] salaries = this.salaries;
+        double sum0 = 0;
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        int row = 0;
+        // Independent accumulators break the add dependency chain that keeps a single sum scalar.
+        for (; row + 3 < size; row += 4) {
+            sum0 += salaries[row];
+            sum1 += salaries[row + 1];
+            sum2 += salaries[row + 2];
+            sum3 += salaries[row + 3];
+        }
+        for (; row < size; row++) {
+            sum0 += salaries[row];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+    public double sumSalary(BitSet rows) {
+        double[] salaries = this.salaries;
+        double sum = 0;
+        for (int row = rows.nextSetBit(0); row >= 0 && row < size; row = rows.nextSetBit(row + 1)) {
+            sum += salaries[row];
+        }
+        return sum;
+    }
+    public double[] salaryByAgeBand(int bandWidth) {
+        int[] ages = this.ages;
+        double[] salaries = this.salaries;
+        double[] sums = new double[maxAge() / bandWidth + 1];
+        for (int row = 0; row < size; row++) {
+            sums[Math.max(0, ages[row]) / bandWidth] += salaries[row];
+        }
+        return sums;
+    }
+    public int[] countByAgeBand(int bandWidth) {
+        int[] ages = this.ages;
+        int[] counts = new int[maxAge() / bandWidth + 1];
+        for (int row = 0; row < size; row++) {
+            counts[Math.max(0, ages[row]) / bandWidth]++;
+        }
+        return counts;
+    }
+    /**
+     * Returns the rows of the {@code n} highest salaries, highest first, using a bounded min-heap of
+     * row positions so the scan stays O(size log n) without boxing.
+     */
+    public int[] topEarners(int n) {
+        int limit = Math.min(n, size);
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int row = 0; row < size; row++) {
+            if (heapSize < limit) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++);
+            } else if (limit > 0 && salaries[row] > salaries[heap[0]]) {
+                heap[0] = row;
+                siftDown(heap, heapSize);
+            }
+        }
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+        return result;
+    }
+    private int maxAge() {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            max = Math.max(max, ages[row]);
+        }
+        return max;
+    }
+    private void siftUp(int[] heap, int index) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (salaries[heap[parent]] <= salaries[row]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+    private void siftDown(int[] heap, int heapSize) {
+        if (heapSize == 0) {
+            return;
+        }
+        int row = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && salaries[heap[child + 1]] < salaries[heap[child]]) {
+                child++;
+            }
+            if (salaries[heap[child]] >= salaries[row]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+    private void append(int id, int nameCode, int age, double salary) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1) + 16;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            salaries = Arrays.copyOf(salaries, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+        }
+        ids[size] = id;
+        ages[size] = age;
+        salaries[size] = salary;
+        nameCodes[size] = nameCode;
+        size++;
+    }
+    private void trim() {
+        if (size < ids.length) {
+            ids = Arrays.copyOf(ids, size);
+            ages = Arrays.copyOf(ages, size);
+            salaries = Arrays.copyOf(salaries, size);
+            nameCodes = Arrays.copyOf(nameCodes, size);
+        }
+    }
+}
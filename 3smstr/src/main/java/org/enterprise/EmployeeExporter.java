@@ -0,0 +1,273 @@
+package org.enterprise;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams every employee together with its departments into a CSV or JSON Lines file, optionally
+ * gzipped. The rows come from one forward-only join ordered by employee id, and each employee is
+ * written as soon as its last membership row has been read, so memory use does not depend on the
+ * number of rows.
+ * <p>
+ * A CSV line is {@code full_name,age,salary,departments,id,department_ids}; the first four columns
+ * are the format {@link CsvImporter} reads, so an export can be imported into another database.
+ * NULL values are written as empty fields.
+ * A JSON line is {@code {"id":1,"fullName":"...","age":30,"salary":1000.0,"departments":[{"id":2,"name":"..."}]}}.
+ */
+public class EmployeeExporter {
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * Picks the format from the file name: {@code .jsonl} or {@code .json} (optionally followed
+         * by {@code .gz}) means JSON Lines, anything else CSV.
+         */
+        public static Format forFile(Path file) {
+            String name = stripGzip(file.getFileName().toString().toLowerCase());
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    public interface ProgressListener {
+        void onProgress(long rows, long elapsedMillis);
+    }
+
+    public static class Result {
+        private final long rows;
+        private final long memberships;
+        private final long bytesWritten;
+        private final long elapsedMillis;
+
+        Result(long rows, long memberships, long bytesWritten, long elapsedMillis) {
+            this.rows = rows;
+            this.memberships = memberships;
+            this.bytesWritten = bytesWritten;
+            this.elapsedMillis = elapsedMillis;
+        }
+        public long getRows() {
+            return rows;
+        }
+        public long getMemberships() {
+            return memberships;
+        }
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        @Override
+        public String toString() {
+            long rate = elapsedMillis == 0 ? rows : rows * 1000 / elapsedMillis;
+            return "Выгружено сотрудников: " + rows + ", связей с отделами: " + memberships +
+                    ", записано байт: " + bytesWritten + ", время: " + elapsedMillis + " мс (" + rate + " строк/с)";
+        }
+    }
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_PROGRESS_INTERVAL = 100_000;
+    private static final String CSV_HEADER = "full_name,age,salary,departments,id,department_ids";
+    private static final OperationMetrics EXPORT_EMPLOYEES = DatabaseMetrics.operation("exportEmployees");
+
+    private final int progressInterval;
+    private final ProgressListener listener;
+
+    public EmployeeExporter(ProgressListener listener) {
+        this(DEFAULT_PROGRESS_INTERVAL, listener);
+    }
+    public EmployeeExporter(int progressInterval, ProgressListener listener) {
+        this.progressInterval = progressInterval;
+        this.listener = listener;
+    }
+    /**
+     * Exports to {@code file} in the format given by its name, gzipped when the name ends in
+     * {@code .gz}.
+     */
+    public Result exportFile(Path file) throws IOException, SQLException {
+        return exportFile(file, Format.forFile(file), isGzip(file));
+    }
+    public Result exportFile(Path file, Format format, boolean gzip) throws IOException, SQLException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        Result result;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : output,
+                StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            result = exportRows(writer, format);
+        }
+        return new Result(result.rows, result.memberships, Files.size(file), result.elapsedMillis);
+    }
+    private Result exportRows(Writer writer, Format format) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long memberships = 0;
+        RowWriter rowWriter = format == Format.JSONL ? new JsonRowWriter(writer) : new CsvRowWriter(writer);
+        OperationMetrics.Timer timer = EXPORT_EMPLOYEES.start();
+
+        String query = "SELECT e.id, e.full_name, e.age, e.salary, d.id, d.name " +
+                "FROM employees e LEFT JOIN employee_department ed ON ed.employee_id = e.id " +
+                "LEFT JOIN departments d ON d.id = ed.department_id " +
+                "ORDER BY e.id, d.id";
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                int currentId = 0;
+                while (resultSet.next()) {
+                    int employeeId = resultSet.getInt(1);
+                    if (rows == 0 || employeeId != currentId) {
+                        if (rows > 0) {
+                            rowWriter.endEmployee();
+                            if (rows % progressInterval == 0) {
+                                listener.onProgress(rows, (System.nanoTime() - start) / 1_000_000);
+                            }
+                        }
+                        currentId = employeeId;
+                        rowWriter.beginEmployee(employeeId, resultSet.getString(2), resultSet.getInt(3), resultSet.getDouble(4));
+                        rows++;
+                    }
+                    int departmentId = resultSet.getInt(5);
+                    if (!resultSet.wasNull()) {
+                        rowWriter.department(departmentId, resultSet.getString(6));
+                        memberships++;
+                    }
+                    timer.rowRead();
+                }
+                if (rows > 0) {
+                    rowWriter.endEmployee();
+                }
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        listener.onProgress(rows, elapsedMillis);
+        return new Result(rows, memberships, 0, elapsedMillis);
+    }
+    static boolean isGzip(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".gz");
+    }
+    private static String stripGzip(String name) {
+        return name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+    }
+    /**
+     * Quotes a CSV field the way {@link CsvImporter#parseLine} reads it back: fields containing a
+     * comma, quote or line break are wrapped in quotes with inner quotes doubled. NULL is written as
+     * an empty field.
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        writeCsvField(writer, value, ',');
+    }
+    static void writeCsvField(Appendable out, String value, char separator) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == separator || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        out.append(value.replace("\"", "\"\""));
+        out.append('"');
+    }
+
+    private interface RowWriter {
+        void beginEmployee(int id, String fullName, int age, double salary) throws IOException;
+        void department(int id, String name) throws IOException;
+        void endEmployee() throws IOException;
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private final StringBuilder names = new StringBuilder();
+        private final StringBuilder ids = new StringBuilder();
+        private int employeeId;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        @Override
+        public void beginEmployee(int id, String fullName, int age, double salary) throws IOException {
+            employeeId = id;
+            writeCsvField(writer, fullName);
+            writer.write(',');
+            writer.write(Integer.toString(age));
+            writer.write(',');
+            writer.write(Double.toString(salary));
+            writer.write(',');
+        }
+        @Override
+        public void department(int id, String name) throws IOException {
+            if (ids.length() > 0) {
+                names.append(';');
+                ids.append(';');
+            }
+            // Quoted like a field of its own, so a name holding ';' does not split the list.
+            writeCsvField(names, name, ';');
+            ids.append(id);
+        }
+        @Override
+        public void endEmployee() throws IOException {
+            writeCsvField(writer, names.toString());
+            writer.write(',');
+            writer.write(Integer.toString(employeeId));
+            writer.write(',');
+            writer.append(ids);
+            writer.write('\n');
+            names.setLength(0);
+            ids.setLength(0);
+        }
+    }
+
+    private static class JsonRowWriter implements RowWriter {
+        private final JsonWriter json;
+
+        JsonRowWriter(Writer writer) {
+            this.json = new JsonWriter(writer);
+        }
+        @Override
+        public void beginEmployee(int id, String fullName, int age, double salary) throws IOException {
+            json.beginObject()
+                    .name("id").value(id)
+                    .name("fullName").value(fullName)
+                    .name("age").value(age)
+                    .name("salary").value(salary)
+                    .name("departments").beginArray();
+        }
+        @Override
+        public void department(int id, String name) throws IOException {
+            json.beginObject().name("id").value(id).name("name").value(name).endObject();
+        }
+        @Override
+        public void endEmployee() throws IOException {
+            json.endArray().endObject().newLine();
+        }
+    }
+}
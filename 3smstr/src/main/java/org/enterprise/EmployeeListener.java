@@ -0,0 +1,11 @@
+package org.enterprise;
+
+public interface EmployeeListener {
+    void salaryChanged(Employee employee, double oldSalary, double newSalary);
+    /**
+     * Called after the id of {@code employee} changed, for example when it was first saved, outside
+     * the employee's monitor.
+     */
+    default void idChanged(Employee employee, int oldId) {
+    }
+}
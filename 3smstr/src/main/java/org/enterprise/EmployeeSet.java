@@ -0,0 +1,299 @@
+package org.enterprise;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Insertion-ordered set of employees keyed by id: any instance with a member's id finds that
+ * member, and a second employee with the same id is not added. Members sit in an array in
+ * insertion order; an open-addressing table from id to array position makes add, lookup and
+ * remove O(1). Removal leaves a hole that is compacted away once holes outnumber members.
+ * <p>
+ * An employee that has no id yet is kept by identity and indexed under its id once the owner
+ * reports it through {@link #idChanged}; the owner hears of it as an {@link EmployeeListener} of the
+ * member. Not thread-safe.
+ */
+class EmployeeSet implements Iterable<Employee> {
+    private Employee[] entries = new Employee[8];
+    // Id each entry is indexed under, 0 for an entry that had no id yet.
+    private int[] entryIds = new int[8];
+    private int end;
+    private int size;
+    // Positions of the entries that had no id, by identity; null while there are none.
+    private IdentityHashMap<Employee, Integer> unindexed;
+    // Pairs of id and position + 1 of its entry; a position of 0 marks a free slot.
+    private int[] table;
+    private int mask;
+    private int shift;
+
+    EmployeeSet() {
+        allocateTable(16);
+    }
+    boolean isEmpty() {
+        return size == 0;
+    }
+    boolean contains(Employee employee) {
+        return positionOf(employee) >= 0;
+    }
+    /**
+     * Adds {@code employee} unless a member has its id, or it is already a member without id.
+     */
+    boolean add(Employee employee) {
+        if (unindexedPosition(employee) >= 0) {
+            return false;
+        }
+        int id = employee.getId();
+        int slot = -1;
+        if (id != 0) {
+            slot = hash(id);
+            while (table[2 * slot + 1] != 0) {
+                if (table[2 * slot] == id) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        if (end == entries.length) {
+            if (end - size >= entries.length / 2) {
+                compact();
+                // Compaction rebuilt the table, so the free slot found above may be taken.
+                slot = -1;
+            } else {
+                entries = Arrays.copyOf(entries, end * 2);
+                entryIds = Arrays.copyOf(entryIds, end * 2);
+            }
+        }
+        entries[end] = employee;
+        entryIds[end] = id;
+        end++;
+        size++;
+        if (id == 0) {
+            if (unindexed == null) {
+                unindexed = new IdentityHashMap<>();
+            }
+            unindexed.put(employee, end - 1);
+        } else if (size * 2 > mask + 1) {
+            rebuildTable(size);
+        } else if (slot < 0) {
+            insertSlot(id, end - 1);
+        } else {
+            table[2 * slot] = id;
+            table[2 * slot + 1] = end;
+        }
+        return true;
+    }
+    /**
+     * Removes the member with the id of {@code employee}, or {@code employee} itself if it has no
+     * id, and returns the member removed.
+     */
+    Employee remove(Employee employee) {
+        int position = positionOf(employee);
+        if (position < 0) {
+            return null;
+        }
+        Employee member = entries[position];
+        if (entryIds[position] == 0) {
+            unindexed.remove(member);
+        } else {
+            deleteSlot(slotOf(entryIds[position]));
+        }
+        entries[position] = null;
+        size--;
+        if (end - size > 16 && end - size > size) {
+            compact();
+        }
+        return member;
+    }
+    void clear() {
+        Arrays.fill(entries, 0, end, null);
+        Arrays.fill(table, 0);
+        end = 0;
+        size = 0;
+        unindexed = null;
+    }
+    /**
+     * Indexes {@code employee} under its new id after it changed from {@code oldId}, and returns
+     * false, doing nothing, if it is not a member. If another member has the new id, it stays
+     * findable by identity only.
+     */
+    boolean idChanged(Employee employee, int oldId) {
+        int position = -1;
+        if (oldId != 0) {
+            int slot = slotOf(oldId);
+            if (slot >= 0 && entries[table[2 * slot + 1] - 1] == employee) {
+                position = table[2 * slot + 1] - 1;
+                deleteSlot(slot);
+            }
+        }
+        if (position < 0 && unindexed != null) {
+            Integer unindexedPosition = unindexed.remove(employee);
+            if (unindexedPosition != null) {
+                position = unindexedPosition;
+            }
+        }
+        if (position < 0) {
+            // A lookup since the change may have indexed it already.
+            int slot = employee.getId() == 0 ? -1 : slotOf(employee.getId());
+            return slot >= 0 && entries[table[2 * slot + 1] - 1] == employee;
+        }
+        index(employee, position);
+        return true;
+    }
+    /**
+     * Returns the members in insertion order as an unmodifiable list that does not change with the set.
+     */
+    List<Employee> toList() {
+        Employee[] result = new Employee[size];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) {
+                result[count++] = entries[i];
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+    @Override
+    public Iterator<Employee> iterator() {
+        return new Iterator<>() {
+            private int next = skipHoles(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+            @Override
+            public Employee next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                Employee employee = entries[next];
+                next = skipHoles(next + 1);
+                return employee;
+            }
+        };
+    }
+    private int skipHoles(int position) {
+        while (position < end && entries[position] == null) {
+            position++;
+        }
+        return position;
+    }
+    private int positionOf(Employee employee) {
+        int position = unindexedPosition(employee);
+        if (position >= 0) {
+            return position;
+        }
+        int id = employee.getId();
+        if (id != 0) {
+            int slot = slotOf(id);
+            if (slot >= 0) {
+                return table[2 * slot + 1] - 1;
+            }
+        }
+        return -1;
+    }
+    /**
+     * Returns the position of {@code employee} if it was added without id, indexing it first if it
+     * has one by now and {@link #idChanged} was not called.
+     */
+    private int unindexedPosition(Employee employee) {
+        if (unindexed == null) {
+            return -1;
+        }
+        Integer position = unindexed.get(employee);
+        if (position == null) {
+            return -1;
+        }
+        if (employee.getId() != 0) {
+            unindexed.remove(employee);
+            index(employee, position);
+        }
+        return position;
+    }
+    private void index(Employee employee, int position) {
+        int id = employee.getId();
+        // An id that another member already has leaves this entry findable by identity only.
+        if (id == 0 || slotOf(id) >= 0) {
+            entryIds[position] = 0;
+            if (unindexed == null) {
+                unindexed = new IdentityHashMap<>();
+            }
+            unindexed.put(employee, position);
+        } else {
+            entryIds[position] = id;
+            insertSlot(id, position);
+        }
+    }
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) {
+                entries[count] = entries[i];
+                entryIds[count] = entryIds[i];
+                if (entryIds[count] == 0) {
+                    unindexed.put(entries[count], count);
+                }
+                count++;
+            }
+        }
+        Arrays.fill(entries, count, end, null);
+        end = count;
+        rebuildTable(size);
+    }
+    private int hash(int id) {
+        return (id * 0x9E3779B9) >>> shift;
+    }
+    private int slotOf(int id) {
+        for (int slot = hash(id); table[2 * slot + 1] != 0; slot = (slot + 1) & mask) {
+            if (table[2 * slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    private void insertSlot(int id, int position) {
+        int slot = hash(id);
+        while (table[2 * slot + 1] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[2 * slot] = id;
+        table[2 * slot + 1] = position + 1;
+    }
+    private void deleteSlot(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table[2 * slot + 1] == 0) {
+                break;
+            }
+            int home = hash(table[2 * slot]);
+            // Move the entry into the hole unless its home lies cyclically in (free, slot].
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                table[2 * free] = table[2 * slot];
+                table[2 * free + 1] = table[2 * slot + 1];
+                free = slot;
+            }
+        }
+        table[2 * free + 1] = 0;
+    }
+    /**
+     * Sizes the table to at most half full with {@code expectedSize} ids and indexes the entries again.
+     */
+    private void rebuildTable(int expectedSize) {
+        allocateTable(Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1));
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null && entryIds[i] != 0) {
+                insertSlot(entryIds[i], i);
+            }
+        }
+    }
+    private void allocateTable(int capacity) {
+        table = new int[2 * capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+}
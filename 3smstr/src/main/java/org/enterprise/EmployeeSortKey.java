@@ -0,0 +1,32 @@
+package org.enterprise;
+
+public enum EmployeeSortKey {
+    ID("id"),
+    NAME("full_name"),
+    AGE("age"),
+    SALARY("salary");
+
+    private final String column;
+
+    EmployeeSortKey(String column) {
+        this.column = column;
+    }
+    public String getColumn() {
+        return column;
+    }
+    /**
+     * Returns the value the database sorts the employee by, or null where the column is NULL.
+     */
+    public Object valueOf(Employee employee) {
+        switch (this) {
+            case NAME:
+                return employee.getFullName();
+            case AGE:
+                return employee.isNull(Employee.AGE) ? null : employee.getAge();
+            case SALARY:
+                return employee.isNull(Employee.SALARY) ? null : employee.getSalary();
+            default:
+                return employee.getId();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.enterprise;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table model over the {@code employees} table that never holds more than a bounded window of pages.
+ * Missing pages are fetched in the background; a page is located by keyset pagination from the last
+ * row of the previous page when that row is known, and by {@code OFFSET} after a long scroll jump.
+ * Sorting is done by SQLite, not in memory.
+ */
+@SuppressWarnings("serial")
+public class EmployeeTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"ID", "ФИО", "Возраст", "Зарплата"};
+    private static final EmployeeSortKey[] SORT_KEYS = {
+            EmployeeSortKey.ID, EmployeeSortKey.NAME, EmployeeSortKey.AGE, EmployeeSortKey.SALARY};
+
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final Map<Integer, List<Employee>> pages;
+    private final Map<Integer, Employee> pageLastRows = new HashMap<>();
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private EmployeeSortKey sortKey = EmployeeSortKey.ID;
+    private boolean ascending = true;
+    private int rowCount;
+    private int generation;
+
+    public EmployeeTableModel() {
+        this(200, 25);
+    }
+    public EmployeeTableModel(int pageSize, int maxCachedPages) {
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<>(maxCachedPages * 2, 0.75f, true);
+    }
+    public void refresh() {
+        generation++;
+        int expectedGeneration = generation;
+        pages.clear();
+        pageLastRows.clear();
+        pendingPages.clear();
+        AsyncDatabase.supply(() -> Repositories.get().countEmployees()).thenAccept(count -> SwingUtilities.invokeLater(() -> {
+            if (expectedGeneration == generation) {
+                rowCount = count;
+                fireTableDataChanged();
+            }
+        }));
+    }
+    public void sortByColumn(int column) {
+        EmployeeSortKey key = SORT_KEYS[column];
+        ascending = key != sortKey || !ascending;
+        sortKey = key;
+        fireTableStructureChanged();
+        refresh();
+    }
+    public Employee getEmployeeAt(int row) {
+        List<Employee> page = pages.get(row / pageSize);
+        if (page == null) {
+            requestPage(row / pageSize);
+            return null;
+        }
+        int index = row % pageSize;
+        return index < page.size() ? page.get(index) : null;
+    }
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    @Override
+    public String getColumnName(int column) {
+        if (SORT_KEYS[column] == sortKey) {
+            return COLUMNS[column] + (ascending ? " ▲" : " ▼");
+        }
+        return COLUMNS[column];
+    }
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 0:
+            case 2:
+                return Integer.class;
+            case 3:
+                return Double.class;
+            default:
+                return String.class;
+        }
+    }
+    @Override
+    public Object getValueAt(int row, int column) {
+        Employee employee = getEmployeeAt(row);
+        if (employee == null) {
+            return null;
+        }
+        switch (column) {
+            case 0:
+                return employee.getId();
+            case 1:
+                return employee.getFullName();
+            case 2:
+                return employee.getAge();
+            default:
+                return employee.getSalary();
+        }
+    }
+    private void requestPage(int pageIndex) {
+        if (!pendingPages.add(pageIndex)) {
+            return;
+        }
+        int expectedGeneration = generation;
+        EmployeeSortKey key = sortKey;
+        boolean ascendingOrder = ascending;
+        Employee previousLast = pageIndex == 0 ? null : pageLastRows.get(pageIndex - 1);
+
+        AsyncDatabase.supply(() -> {
+            if (pageIndex == 0) {
+                return Repositories.get().loadEmployeesPageAt(key, ascendingOrder, 0, pageSize);
+            }
+            if (previousLast != null) {
+                return Repositories.get().loadEmployeesPage(key, ascendingOrder, key.valueOf(previousLast), previousLast.getId(), pageSize);
+            }
+            return Repositories.get().loadEmployeesPageAt(key, ascendingOrder, pageIndex * pageSize, pageSize);
+        }).whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+            if (expectedGeneration != generation) {
+                return;
+            }
+            pendingPages.remove(pageIndex);
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            storePage(pageIndex, page);
+            int firstRow = pageIndex * pageSize;
+            int lastRow = Math.min(firstRow + pageSize, rowCount) - 1;
+            if (lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        }));
+    }
+    private void storePage(int pageIndex, List<Employee> page) {
+        pages.put(pageIndex, page);
+        if (!page.isEmpty()) {
+            pageLastRows.put(pageIndex, page.get(page.size() - 1));
+        }
+        while (pages.size() > maxCachedPages) {
+            Integer eldest = pages.keySet().iterator().next();
+            pages.remove(eldest);
+            // A page after an evicted one is located by OFFSET again, like after a scroll jump.
+            pageLastRows.remove(eldest);
+        }
+    }
+}
@@ -1,23 +1,176 @@
 package org.enterprise;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The departments of the enterprise and indexes over their members. Lookups never lock: the
+ * department list is an immutable snapshot replaced on every change, and the indexes are
+ * concurrent maps updated one employee at a time, each department set being replaced as a whole.
+ */
 public class Enterprise {
-    private List<Department> departments;
+    private volatile List<Department> departments = List.of();
+    private final Map<String, Department> departmentsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, Department> departmentsById = new ConcurrentHashMap<>();
+    private final Map<Integer, Employee> employeesById = new ConcurrentHashMap<>();
+    private final Map<Integer, Department[]> departmentsByEmployee = new ConcurrentHashMap<>();
+    private final SalaryStatistics salaryStatistics = new SalaryStatistics(employeesById::values);
+    private final EmployeeListener salaryListener = (employee, oldSalary, newSalary) ->
+            salaryStatistics.replace(oldSalary, newSalary);
 
     public Enterprise() {
-        this.departments = new ArrayList<>();
     }
     public void addDepartment(Department department) {
-        departments.add(department);
+        department.joinEnterprise(this);
+        synchronized (this) {
+            List<Department> updated = new ArrayList<>(departments.size() + 1);
+            updated.addAll(departments);
+            updated.add(department);
+            departments = Collections.unmodifiableList(updated);
+            departmentsByName.putIfAbsent(department.getName(), department);
+            if (department.getId() != 0) {
+                departmentsById.putIfAbsent(department.getId(), department);
+            }
+        }
     }
 
     public void removeDepartment(Department department) {
-        departments.remove(department);
+        synchronized (this) {
+            if (!departments.contains(department)) {
+                return;
+            }
+            List<Department> updated = new ArrayList<>(departments);
+            updated.remove(department);
+            departments = Collections.unmodifiableList(updated);
+        }
+        department.leaveEnterprise();
+        unindexName(department, department.getName());
+        if (department.getId() != 0) {
+            departmentsById.remove(department.getId(), department);
+        }
     }
 
     public List<Department> getDepartments() {
         return departments;
     }
-}
\ No newline at end of file
+    public Department findDepartmentByName(String name) {
+        return departmentsByName.get(name);
+    }
+    public Department findDepartmentById(int id) {
+        return departmentsById.get(id);
+    }
+    public Employee findEmployeeById(int id) {
+        return employeesById.get(id);
+    }
+    public SalaryStatistics getSalaryStatistics() {
+        return salaryStatistics;
+    }
+    public Set<Department> getDepartmentsOf(Employee employee) {
+        Department[] result = departmentsByEmployee.get(employee.getId());
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(result)));
+    }
+    void employeeAdded(Department department, Employee employee) {
+        if (employee.getId() == 0) {
+            return;
+        }
+        departmentsByEmployee.compute(employee.getId(), (id, memberships) -> {
+            if (memberships == null) {
+                employeesById.put(id, employee);
+                employee.attach(salaryListener, salaryStatistics);
+                return new Department[]{department};
+            }
+            return with(memberships, department);
+        });
+    }
+    void employeeRemoved(Department department, Employee employee) {
+        unindexMembership(department, employee.getId());
+    }
+    /**
+     * Moves the department's membership of {@code employee} from {@code oldId} to its current id,
+     * after it was saved or a rolled back save took its id away again.
+     */
+    void employeeIdChanged(Department department, Employee employee, int oldId) {
+        if (oldId != 0) {
+            unindexMembership(department, oldId);
+        }
+        employeeAdded(department, employee);
+    }
+    private void unindexMembership(Department department, int employeeId) {
+        departmentsByEmployee.computeIfPresent(employeeId, (id, memberships) -> {
+            Department[] remaining = without(memberships, department);
+            if (remaining.length == 0) {
+                Employee indexed = employeesById.remove(id);
+                indexed.detach(salaryListener, salaryStatistics);
+                return null;
+            }
+            return remaining;
+        });
+    }
+    /**
+     * Replaces {@code from} with {@code to} among the employee's departments in one step.
+     */
+    void employeeMoved(Department from, Department to, Employee employee) {
+        if (employee.getId() == 0) {
+            return;
+        }
+        departmentsByEmployee.compute(employee.getId(), (id, memberships) -> {
+            if (memberships == null) {
+                employeesById.put(id, employee);
+                employee.attach(salaryListener, salaryStatistics);
+                return new Department[]{to};
+            }
+            return with(without(memberships, from), to);
+        });
+    }
+    synchronized void departmentRenamed(Department department, String oldName) {
+        unindexName(department, oldName);
+        departmentsByName.putIfAbsent(department.getName(), department);
+    }
+    void departmentIdChanged(Department department, int oldId) {
+        if (oldId != 0) {
+            departmentsById.remove(oldId, department);
+        }
+        if (department.getId() != 0) {
+            departmentsById.putIfAbsent(department.getId(), department);
+        }
+    }
+    private synchronized void unindexName(Department department, String name) {
+        if (!departmentsByName.remove(name, department)) {
+            return;
+        }
+        for (Department other : departments) {
+            if (other != department && Objects.equals(other.getName(), name)) {
+                departmentsByName.put(name, other);
+                return;
+            }
+        }
+    }
+    private static Department[] with(Department[] memberships, Department department) {
+        for (Department member : memberships) {
+            if (member == department) {
+                return memberships;
+            }
+        }
+        Department[] result = Arrays.copyOf(memberships, memberships.length + 1);
+        result[memberships.length] = department;
+        return result;
+    }
+    private static Department[] without(Department[] memberships, Department department) {
+        for (int i = 0; i < memberships.length; i++) {
+            if (memberships[i] == department) {
+                Department[] result = new Department[memberships.length - 1];
+                System.arraycopy(memberships, 0, result, 0, i);
+                System.arraycopy(memberships, i + 1, result, i, result.length - i);
+                return result;
+            }
+        }
+        return memberships;
+    }
+}
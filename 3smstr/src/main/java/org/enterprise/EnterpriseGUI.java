@@ -1,28 +1,94 @@
 package org.enterprise;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class EnterpriseGUI {
-    private final Enterprise enterprise;
+    private static final Executor EDT = SwingUtilities::invokeLater;
+    private static final int FLUSH_DELAY_MILLIS = Integer.getInteger("enterprise.flushDelayMillis", 2_000);
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    private static final int SEARCH_LIMIT = 50;
+    private static final int REFRESH_INTERVAL_MILLIS = Integer.getInteger("enterprise.refreshIntervalMillis", 2_000);
+    private static final int SNAPSHOT_INTERVAL_MILLIS = Integer.getInteger("enterprise.snapshotIntervalMillis", 300_000);
+    private static final PayrollReportEngine REPORTS = PayrollReportEngine.fromSystemProperties();
+
+    private Enterprise enterprise;
     private final JTextArea textArea;
+    private final JLabel statusLabel;
+    private final JProgressBar progressBar;
+    private JPanel actionsPanel;
+    private int runningTasks;
+    private final UnitOfWork unitOfWork = new UnitOfWork();
+    private final Timer flushTimer;
+    private CompletableFuture<Boolean> lastFlush = CompletableFuture.completedFuture(true);
+    private final DefaultListModel<Employee> searchResults = new DefaultListModel<>();
+    private int searchGeneration;
+    private String searchText = "";
+    private final Timer refreshTimer;
+    private long changeSequence;
+    private boolean refreshing;
+    private boolean departmentsShown;
+    private final List<EmployeeTableModel> openTables = new ArrayList<>();
+    private final Path snapshotFile;
+    private final Timer snapshotTimer;
+    private boolean modelLoaded;
+    private long snapshotSequence = -1;
 
     public EnterpriseGUI() {
         this.enterprise = new Enterprise();
         this.textArea = new JTextArea(22, 50);
+        this.statusLabel = new JLabel("Готово");
+        this.progressBar = new JProgressBar();
+        this.flushTimer = new Timer(FLUSH_DELAY_MILLIS, e -> saveChanges());
+        this.flushTimer.setRepeats(false);
+        this.refreshTimer = new Timer(Math.max(REFRESH_INTERVAL_MILLIS, 1), e -> refreshFromDatabase());
+        this.snapshotFile = Repositories.get() instanceof SqliteRepository ? EnterpriseSnapshot.defaultFile() : null;
+        this.snapshotTimer = new Timer(Math.max(SNAPSHOT_INTERVAL_MILLIS, 1), e -> writeSnapshotInBackground());
     }
     public void showMainFrame() {
         SwingUtilities.invokeLater(() -> {
             initComponents();
-            loadDepartmentsFromDatabase();
-            loadEmployeesFromDatabase();
+            loadEnterpriseFromDatabase();
         });
     }
     private void initComponents() {
         JFrame frame = new JFrame("Enterprise Management System");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(1400, 500);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                flushTimer.stop();
+                refreshTimer.stop();
+                snapshotTimer.stop();
+                lastFlush.handle((saved, error) -> null).join();
+                if (!unitOfWork.flush()) {
+                    System.err.println("Failed to save pending changes.");
+                } else if (snapshotFile != null && modelLoaded) {
+                    EnterpriseSnapshot snapshot = EnterpriseSnapshot.capture(enterprise, changeSequence);
+                    if (snapshot != null) {
+                        writeSnapshot(snapshot);
+                    }
+                }
+            }
+        });
 
         JButton showAllButton = new JButton("Отделы/сотрудники");
         showAllButton.addActionListener(e -> showAllDepartments());
@@ -48,7 +114,20 @@ public class EnterpriseGUI {
         JButton showAllEmployeesButton = new JButton("Все сотрудники");
         showAllEmployeesButton.addActionListener(e -> showAllEmployees());
 
+        JButton reportButton = new JButton("Отчёт по зарплатам");
+        reportButton.addActionListener(e -> showPayrollReport());
+
+        JButton payrollButton = new JButton("Массовые операции");
+        payrollButton.addActionListener(e -> bulkPayroll());
+
+        JButton importButton = new JButton("Импорт CSV");
+        importButton.addActionListener(e -> importEmployees(frame));
+
+        JButton saveButton = new JButton("Сохранить изменения");
+        saveButton.addActionListener(e -> saveChanges());
+
         JPanel panel = new JPanel();
+        actionsPanel = panel;
         panel.add(showAllButton);
         panel.add(addButton);
         panel.add(removeButton);
@@ -57,23 +136,46 @@ public class EnterpriseGUI {
         panel.add(editEmployeeButton);
         panel.add(removeEmployeeButton);
         panel.add(showAllEmployeesButton);
+        panel.add(reportButton);
+        panel.add(payrollButton);
+        panel.add(importButton);
+        panel.add(saveButton);
 
 
         JScrollPane scrollPane = new JScrollPane(textArea);
         JPanel mainPanel = new JPanel();
         mainPanel.add(panel);
         mainPanel.add(scrollPane);
+        mainPanel.add(createSearchPanel());
 
-        frame.add(mainPanel);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+
+        frame.add(mainPanel, BorderLayout.CENTER);
+        frame.add(statusPanel, BorderLayout.SOUTH);
         frame.setVisible(true);
     }
     private void showAllDepartments() {
         StringBuilder output = new StringBuilder("Отделы:\n");
         for (Department department : enterprise.getDepartments()) {
             output.append(department).append(",\n").append(department.getFormattedEmployeeList())
-                    .append("Зарплата отдела: ").append(department.calculateTotalSalary()).append("\n\n");
+                    .append("Зарплата отдела: ").append(department.calculateTotalSalary()).append("\n")
+                    .append("Статистика: ").append(department.getSalaryStatistics()).append("\n\n");
         }
+        output.append("Всего по предприятию: ").append(enterprise.getSalaryStatistics()).append("\n");
         textArea.setText(output.toString());
+        departmentsShown = true;
+    }
+    private void showPayrollReport() {
+        PayrollReportEngine.Data data = PayrollReportEngine.capture(enterprise);
+        runInBackground("Формирование отчёта...", REPORTS.renderAsync(data), report -> {
+            textArea.setText(report);
+            textArea.setCaretPosition(0);
+            departmentsShown = false;
+        });
     }
     private void addDepartment() {
         String departmentName = JOptionPane.showInputDialog("Введите имя отдела:");
@@ -84,8 +186,8 @@ public class EnterpriseGUI {
 
         Department newDepartment = new Department(departmentName);
         enterprise.addDepartment(newDepartment);
-        newDepartment.saveToDatabase();
-
+        unitOfWork.registerNew(newDepartment);
+        scheduleFlush();
         showMessage("Отдел успешно добавлен.");
     }
     private void removeDepartment() {
@@ -94,7 +196,8 @@ public class EnterpriseGUI {
 
         if (departmentToRemove != null) {
             enterprise.removeDepartment(departmentToRemove);
-            DatabaseManager.removeDepartment(departmentToRemove);
+            unitOfWork.registerRemoved(departmentToRemove);
+            scheduleFlush();
             showMessage("Отдел успешно удалён.");
         } else {
             showError("Отдел не найден.");
@@ -107,20 +210,16 @@ public class EnterpriseGUI {
         if (selectedDepartment != null) {
             String newDepartmentName = JOptionPane.showInputDialog("Введите новое имя отдела:");
             selectedDepartment.setName(newDepartmentName);
+            unitOfWork.registerDirty(selectedDepartment);
+            scheduleFlush();
             showAllDepartments();
-            selectedDepartment.setName(newDepartmentName);
             showMessage("Отдел успешно изменён.");
         } else {
             showError("Отдел не найден.");
         }
     }
     private Department findDepartmentByName(String name) {
-        for (Department department : enterprise.getDepartments()) {
-            if (department.getName().equals(name)) {
-                return department;
-            }
-        }
-        return null;
+        return enterprise.findDepartmentByName(name);
     }
     private Department chooseDepartment(String message) {
         Object[] departmentOptions = enterprise.getDepartments().toArray();
@@ -152,80 +251,291 @@ public class EnterpriseGUI {
         }
 
         Employee newEmployee = new Employee(fullName, age, salary);
-        int employeeId = DatabaseManager.saveEmployee(newEmployee);
-
-        if (employeeId != -1) {
-            showMessage("Сотрудник успешно добавлен с ID: " + employeeId);
-
-            selectedDepartment.addEmployee(newEmployee);
-            selectedDepartment.saveToDatabase();
-        } else {
-            showError("Ошибка при добавлении сотрудника.");
-        }
+        unitOfWork.registerNew(newEmployee);
+        runInBackground("Сохранение сотрудника...", flushChanges(), saved -> {
+            if (saved) {
+                selectedDepartment.addEmployee(newEmployee);
+                unitOfWork.registerDirty(selectedDepartment);
+                scheduleFlush();
+                showMessage("Сотрудник успешно добавлен с ID: " + newEmployee.getId());
+            } else {
+                showError("Ошибка при добавлении сотрудника.");
+            }
+        });
     }
     private void removeEmployee() {
-        int employeeId = Integer.parseInt(JOptionPane.showInputDialog("Введите ID сотрудника для удаления:"));
-        Employee employeeToRemove = findEmployeeById(employeeId);
-
-        if (employeeToRemove != null) {
-            removeEmployeeFromCurrentDepartment(employeeToRemove);
-
-            DatabaseManager.removeEmployee(employeeToRemove);
-
+        promptEmployee("Введите ID или имя сотрудника для удаления:", employeeToRemove -> {
+            for (Department department : new ArrayList<>(enterprise.getDepartmentsOf(employeeToRemove))) {
+                department.removeEmployee(employeeToRemove);
+                unitOfWork.registerDirty(department);
+            }
+            unitOfWork.registerRemoved(employeeToRemove);
+            scheduleFlush();
             showMessage("Сотрудник успешно удален.");
-        } else {
-            showError("Сотрудник не найден.");
+        });
+    }
+    private void bulkPayroll() {
+        String[] operations = {"Повышение з/п в отделе", "Ограничение з/п по возрасту", "Перевод всех сотрудников отдела"};
+        Object operation = JOptionPane.showInputDialog(null, "Выберите операцию:", "Массовые операции",
+                JOptionPane.QUESTION_MESSAGE, null, operations, operations[0]);
+        if (operation == operations[0]) {
+            raiseSalaries();
+        } else if (operation == operations[1]) {
+            clampSalaries();
+        } else if (operation == operations[2]) {
+            moveDepartmentMembers();
+        }
+    }
+    private void raiseSalaries() {
+        Department department = chooseDepartment("Выберите отдел:");
+        if (department == null) {
+            return;
         }
+        String input = JOptionPane.showInputDialog("Введите повышение в процентах (например, 5%) или суммой (например, 1000):");
+        if (input == null || input.isBlank()) {
+            return;
+        }
+        input = input.trim();
+        boolean percent = input.endsWith("%");
+        double value;
+        try {
+            value = Double.parseDouble(percent ? input.substring(0, input.length() - 1).trim() : input);
+        } catch (NumberFormatException e) {
+            showError("Неверное значение: " + input);
+            return;
+        }
+        CompletableFuture<SalaryUpdate> result = flushChanges().handle((saved, error) -> department)
+                .thenCompose(selected -> AsyncDatabase.raiseSalaries(selected, percent ? value : 0, percent ? 0 : value));
+        applySalaryUpdate("Повышение з/п...", result);
+    }
+    private void clampSalaries() {
+        String minAgeInput = JOptionPane.showInputDialog("Возраст от:");
+        String maxAgeInput = minAgeInput == null ? null : JOptionPane.showInputDialog("Возраст до:");
+        if (maxAgeInput == null) {
+            return;
+        }
+        try {
+            int minAge = Integer.parseInt(minAgeInput.trim());
+            int maxAge = Integer.parseInt(maxAgeInput.trim());
+            double floor = parseBound(JOptionPane.showInputDialog("Минимальная з/п (пусто - без ограничения):"), Double.NEGATIVE_INFINITY);
+            double cap = parseBound(JOptionPane.showInputDialog("Максимальная з/п (пусто - без ограничения):"), Double.POSITIVE_INFINITY);
+            if (minAge > maxAge || floor > cap) {
+                showError("Нижняя граница больше верхней.");
+                return;
+            }
+            CompletableFuture<SalaryUpdate> result = flushChanges().handle((saved, error) -> null)
+                    .thenCompose(ignored -> AsyncDatabase.clampSalaries(minAge, maxAge, floor, cap));
+            applySalaryUpdate("Ограничение з/п...", result);
+        } catch (NumberFormatException e) {
+            showError("Неверное значение: " + e.getMessage());
+        }
+    }
+    private static double parseBound(String input, double none) {
+        return input == null || input.isBlank() ? none : Double.parseDouble(input.trim());
+    }
+    private void applySalaryUpdate(String status, CompletableFuture<SalaryUpdate> result) {
+        runInBackground(status, result, update -> {
+            if (update == null) {
+                showError("Ошибка при изменении зарплат.");
+                return;
+            }
+            update.applyTo(enterprise);
+            refreshViews();
+            showMessage(update.toString());
+        });
+    }
+    private void moveDepartmentMembers() {
+        Department from = chooseDepartment("Из какого отдела перевести сотрудников:");
+        Department to = from == null ? null : chooseDepartment("В какой отдел:");
+        if (to == null || to == from) {
+            showError("Выберите два разных отдела.");
+            return;
+        }
+        CompletableFuture<Boolean> result = flushChanges().handle((saved, error) -> null)
+                .thenCompose(ignored -> AsyncDatabase.moveDepartmentMembers(from, to));
+        runInBackground("Перевод сотрудников...", result, moved -> {
+            if (moved) {
+                from.moveStoredMembersTo(to);
+                refreshViews();
+                showMessage("Сотрудники переведены в отдел " + to.getName() + ".");
+            } else {
+                showError("Ошибка при переводе сотрудников.");
+            }
+        });
     }
     private void showAllEmployees() {
-        List<Employee> allEmployees = DatabaseManager.loadAllEmployees();
-        StringBuilder output = new StringBuilder("Все сотрудники:\n");
+        EmployeeTableModel model = new EmployeeTableModel();
+        JTable table = new JTable(model);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    model.sortByColumn(table.convertColumnIndexToModel(column));
+                }
+            }
+        });
 
-        for (Employee employee : allEmployees) {
-            output.append("ID: ").append(employee.getId()).append(", ФИО: ").append(employee.getFullName())
-                    .append(", Возраст: ").append(employee.getAge()).append(", Зарплата: ").append(employee.getSalary()).append("\n");
+        JFrame employeesFrame = new JFrame("Все сотрудники");
+        employeesFrame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        employeesFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                openTables.remove(model);
+            }
+        });
+        employeesFrame.add(new JScrollPane(table));
+        employeesFrame.setSize(800, 600);
+        employeesFrame.setVisible(true);
+        openTables.add(model);
+        model.refresh();
+    }
+    private CompletableFuture<Employee> findEmployeeById(int employeeId) {
+        Employee employee = enterprise.findEmployeeById(employeeId);
+        if (employee != null) {
+            return CompletableFuture.completedFuture(employee);
         }
+        return AsyncDatabase.loadEmployee(employeeId);
+    }
+    private void editEmployee() {
+        promptEmployee("Введите ID или имя сотрудника для редактирования:", this::editEmployee);
+    }
+    private void editEmployee(Employee existingEmployee) {
+        Object[] options = {"Изменить информацию", "Изменить отдел", "Отменить"};
+        int choice = JOptionPane.showOptionDialog(
+                null,
+                "Выберите действие:",
+                "Редактировать сотрудника",
+                JOptionPane.YES_NO_CANCEL_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                null,
+                options,
+                options[2]);
 
-        textArea.setText(output.toString());
+        switch (choice) {
+            case 0:
+                editEmployeeInformation(existingEmployee);
+                break;
+            case 1:
+                editEmployeeDepartment(existingEmployee);
+                break;
+        }
     }
-    private Employee findEmployeeById(int employeeId) {
-        List<Employee> allEmployees = DatabaseManager.loadAllEmployees();
+    /**
+     * Asks for an employee id or a name. An id is resolved directly; a name is searched and, if
+     * several employees match, the user picks one from the list.
+     */
+    private void promptEmployee(String message, Consumer<Employee> action) {
+        String input = JOptionPane.showInputDialog(message);
+        if (input == null || input.isBlank()) {
+            return;
+        }
+        String text = input.trim();
+        if (text.matches("\\d{1,9}")) {
+            runInBackground("Поиск сотрудника...", findEmployeeById(Integer.parseInt(text)), employee -> {
+                if (employee != null) {
+                    action.accept(employee);
+                } else {
+                    showError("Сотрудник не найден.");
+                }
+            });
+            return;
+        }
+        runInBackground("Поиск сотрудника...", AsyncDatabase.searchEmployees(text, SEARCH_LIMIT), found -> {
+            if (found.isEmpty()) {
+                showError("Сотрудник не найден.");
+                return;
+            }
+            Employee selected = found.get(0);
+            if (found.size() > 1) {
+                Object[] choices = found.stream().map(EnterpriseGUI::describe).toArray();
+                Object choice = JOptionPane.showInputDialog(null, "Найдено несколько сотрудников:", "Выберите сотрудника",
+                        JOptionPane.QUESTION_MESSAGE, null, choices, choices[0]);
+                if (choice == null) {
+                    return;
+                }
+                selected = found.get(Arrays.asList(choices).indexOf(choice));
+            }
+            action.accept(knownInstance(selected));
+        });
+    }
+    /**
+     * Search results are fresh copies from the database; edits must go to the instance the
+     * departments hold, if the employee is loaded.
+     */
+    private Employee knownInstance(Employee employee) {
+        Employee known = enterprise.findEmployeeById(employee.getId());
+        return known != null ? known : employee;
+    }
+    private static String describe(Employee employee) {
+        return "(" + employee.getId() + ") " + employee.getFullName() + ", " + employee.getAge();
+    }
+    private JPanel createSearchPanel() {
+        JTextField searchField = new JTextField(25);
+        JList<Employee> resultList = new JList<>(searchResults);
+        resultList.setVisibleRowCount(20);
+        resultList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, describe((Employee) value), index, isSelected, cellHasFocus);
+            }
+        });
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                Employee selected = resultList.getSelectedValue();
+                if (e.getClickCount() == 2 && selected != null) {
+                    editEmployee(knownInstance(selected));
+                }
+            }
+        });
 
-        for (Employee employee : allEmployees) {
-            if (employee.getId() == employeeId) {
-                return employee;
+        Timer searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> searchEmployees(searchField.getText()));
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
             }
-        }
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
 
-        return null;
+        JPanel fieldPanel = new JPanel(new BorderLayout());
+        fieldPanel.add(new JLabel("Поиск сотрудника: "), BorderLayout.WEST);
+        fieldPanel.add(searchField, BorderLayout.CENTER);
+        JPanel searchPanel = new JPanel(new BorderLayout());
+        searchPanel.add(fieldPanel, BorderLayout.NORTH);
+        searchPanel.add(new JScrollPane(resultList), BorderLayout.CENTER);
+        return searchPanel;
     }
-    private void editEmployee() {
-        int employeeId = Integer.parseInt(JOptionPane.showInputDialog("Введите ID сотрудника для редактирования:"));
-        Employee existingEmployee = findEmployeeById(employeeId);
-
-        if (existingEmployee != null) {
-            Object[] options = {"Изменить информацию", "Изменить отдел", "Отменить"};
-            int choice = JOptionPane.showOptionDialog(
-                    null,
-                    "Выберите действие:",
-                    "Редактировать сотрудника",
-                    JOptionPane.YES_NO_CANCEL_OPTION,
-                    JOptionPane.QUESTION_MESSAGE,
-                    null,
-                    options,
-                    options[2]);
-
-            switch (choice) {
-                case 0:
-                    editEmployeeInformation(existingEmployee);
-                    break;
-                case 1:
-                    editEmployeeDepartment(existingEmployee);
-                    break;
-            }
-        } else {
-            showError("Сотрудник не найден.");
+    /**
+     * Runs a type-ahead query; results of a query overtaken by a newer one are dropped.
+     */
+    private void searchEmployees(String text) {
+        int generation = ++searchGeneration;
+        searchText = text;
+        if (text.isBlank()) {
+            searchResults.clear();
+            return;
         }
+        AsyncDatabase.searchEmployees(text, SEARCH_LIMIT).whenCompleteAsync((found, error) -> {
+            if (generation != searchGeneration) {
+                return;
+            }
+            searchResults.clear();
+            if (error != null) {
+                error.printStackTrace();
+            } else {
+                searchResults.addAll(found);
+            }
+        }, EDT);
     }
     private void editEmployeeInformation(Employee employee) {
         String newFullName = JOptionPane.showInputDialog("Введите новое ФИО:");
@@ -235,39 +545,189 @@ public class EnterpriseGUI {
         employee.setFullName(newFullName);
         employee.setAge(newAge);
         employee.setSalary(newSalary);
-
-        DatabaseManager.updateEmployee(employee);
+        unitOfWork.registerDirty(employee);
+        scheduleFlush();
         showMessage("Информация о сотруднике успешно обновлена.");
     }
     private void editEmployeeDepartment(Employee employee) {
         Department selectedDepartment = chooseDepartment("Выберите новый отдел для сотрудника:");
         if (selectedDepartment != null) {
-            removeEmployeeFromCurrentDepartment(employee);
-            selectedDepartment.addEmployee(employee);
-            selectedDepartment.saveToDatabase();
+            Set<Department> departments = enterprise.getDepartmentsOf(employee);
+            if (departments.isEmpty()) {
+                selectedDepartment.addEmployee(employee);
+            } else {
+                Department department = departments.iterator().next();
+                department.moveEmployeeTo(employee, selectedDepartment);
+                unitOfWork.registerDirty(department);
+            }
+            unitOfWork.registerDirty(selectedDepartment);
+            scheduleFlush();
             showMessage("Отдел сотрудников успешно обновлен.");
         } else {
             showError("Отдел не выбран. Отдел сотрудников не обновлен.");
         }
     }
-    private void removeEmployeeFromCurrentDepartment(Employee employee) {
-        for (Department department : enterprise.getDepartments()) {
-            if (department.getEmployees().contains(employee)) {
-                department.removeEmployee(employee);
-                department.saveToDatabase();
-                break;
+    private void importEmployees(JFrame frame) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        ProgressMonitor monitor = new ProgressMonitor(frame, "Импорт " + file.getName(), "", 0, 100);
+        CsvImporter importer = new CsvImporter((rows, bytesRead, totalBytes) -> SwingUtilities.invokeLater(() -> {
+            monitor.setNote("Строк: " + rows);
+            monitor.setProgress(totalBytes == 0 ? 100 : (int) (bytesRead * 100 / totalBytes));
+        }));
+
+        CompletableFuture<CsvImporter.Result> result = AsyncDatabase.supply(() -> importer.importFile(file.toPath()));
+        result.whenCompleteAsync((ignored, error) -> monitor.close(), EDT);
+        runInBackground("Импорт " + file.getName() + "...", result, imported -> {
+            showMessage(imported.toString());
+            loadEnterpriseFromDatabase();
+        });
+    }
+    private void loadEnterpriseFromDatabase() {
+        Enterprise loaded = new Enterprise();
+        setActionsEnabled(false);
+        refreshing = true;
+        CompletableFuture<EnterpriseLoader.Result> result = flushChanges().handle((saved, error) -> loaded)
+                .thenCompose(AsyncDatabase::loadEnterprise);
+        result.whenCompleteAsync((ignored, error) -> {
+            setActionsEnabled(true);
+            refreshing = false;
+        }, EDT);
+        runInBackground("Загрузка данных...", result, loadResult -> {
+            enterprise = loaded;
+            changeSequence = loadResult.getChangeSequence();
+            statusLabel.setText(loadResult.toString());
+            modelLoaded = true;
+            if (REFRESH_INTERVAL_MILLIS > 0) {
+                refreshTimer.start();
+            }
+            if (snapshotFile != null && SNAPSHOT_INTERVAL_MILLIS > 0) {
+                snapshotTimer.start();
             }
+            refreshViews();
+        });
+    }
+    /**
+     * Polls the change log and applies what other processes changed since the last poll. Runs after
+     * the pending flush, so the delta is read after our own edits reached the database.
+     */
+    private void refreshFromDatabase() {
+        if (refreshing) {
+            return;
         }
+        refreshing = true;
+        Enterprise current = enterprise;
+        long afterSequence = changeSequence;
+        lastFlush.handle((saved, error) -> afterSequence).thenCompose(AsyncDatabase::readChanges)
+                .whenCompleteAsync((delta, error) -> {
+                    refreshing = false;
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    if (current != enterprise || afterSequence != changeSequence) {
+                        return;
+                    }
+                    if (delta.isFullReloadRequired()) {
+                        loadEnterpriseFromDatabase();
+                        return;
+                    }
+                    changeSequence = delta.getSequence();
+                    if (!delta.isEmpty()) {
+                        ChangeTracker.apply(current, delta);
+                        statusLabel.setText(delta.toString());
+                        refreshViews();
+                    }
+                }, EDT);
     }
-    private void loadDepartmentsFromDatabase() {
-        List<Department> departments = DatabaseManager.loadAllDepartments();
-        enterprise.getDepartments().addAll(departments);
+    /**
+     * Captures the model on the event dispatch thread and writes the snapshot on a worker, unless an
+     * edit is pending or nothing changed since the last snapshot.
+     */
+    private void writeSnapshotInBackground() {
+        if (refreshing || unitOfWork.hasChanges() || !lastFlush.isDone() || changeSequence == snapshotSequence) {
+            return;
+        }
+        EnterpriseSnapshot snapshot = EnterpriseSnapshot.capture(enterprise, changeSequence);
+        if (snapshot != null) {
+            snapshotSequence = changeSequence;
+            AsyncDatabase.run(() -> writeSnapshot(snapshot));
+        }
     }
-    private void loadEmployeesFromDatabase() {
-        List<Employee> employees = DatabaseManager.loadAllEmployees();
-        for (Department department : enterprise.getDepartments()) {
-            List<Employee> departmentEmployees = DatabaseManager.loadDepartmentEmployees(department);
-            department.getEmployees().addAll(departmentEmployees);
+    private synchronized void writeSnapshot(EnterpriseSnapshot snapshot) {
+        try {
+            snapshot.write(snapshotFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Failed to write snapshot: " + e.getMessage());
+        }
+    }
+    private void refreshViews() {
+        if (departmentsShown) {
+            showAllDepartments();
+        }
+        if (!searchText.isBlank()) {
+            searchEmployees(searchText);
+        }
+        for (EmployeeTableModel model : openTables) {
+            model.refresh();
+        }
+    }
+    private void scheduleFlush() {
+        flushTimer.restart();
+    }
+    private void saveChanges() {
+        runInBackground("Сохранение изменений...", flushChanges(), saved -> {
+            if (!saved) {
+                showError("Ошибка при сохранении изменений. Они будут сохранены при следующей попытке.");
+            }
+        });
+    }
+    /**
+     * Detaches the pending edits and writes them after the previous flush, so change sets reach the
+     * database in the order they were made. A failed change set is handed back to the unit of work.
+     */
+    private CompletableFuture<Boolean> flushChanges() {
+        flushTimer.stop();
+        UnitOfWork.ChangeSet changes = unitOfWork.takeChanges();
+        if (changes.isEmpty()) {
+            return lastFlush;
+        }
+        CompletableFuture<Boolean> flush = lastFlush.handle((saved, error) -> changes)
+                .thenCompose(AsyncDatabase::applyChanges);
+        lastFlush = flush;
+        flush.whenCompleteAsync((saved, error) -> {
+            if (error != null || !saved) {
+                unitOfWork.restore(changes);
+            }
+        }, EDT);
+        return flush;
+    }
+    private <T> void runInBackground(String status, CompletableFuture<T> task, Consumer<T> onSuccess) {
+        runningTasks++;
+        statusLabel.setText(status);
+        progressBar.setVisible(true);
+        task.whenCompleteAsync((result, error) -> {
+            runningTasks--;
+            if (runningTasks == 0) {
+                progressBar.setVisible(false);
+                statusLabel.setText("Готово");
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                showError("Ошибка базы данных: " + cause.getMessage());
+            } else {
+                onSuccess.accept(result);
+            }
+        }, EDT);
+    }
+    private void setActionsEnabled(boolean enabled) {
+        for (Component component : actionsPanel.getComponents()) {
+            component.setEnabled(enabled);
         }
     }
     private void showError(String message) {
@@ -0,0 +1,109 @@
+package org.enterprise;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the whole {@link Enterprise} graph from the database: one query for departments and one
+ * streaming join over memberships ordered by employee id, so every employee is materialized exactly
+ * once no matter how many departments it belongs to.
+ */
+public class EnterpriseLoader {
+    public static class Result {
+        private final int departments;
+        private final int employees;
+        private final long memberships;
+        private final long elapsedMillis;
+        private final long changeSequence;
+
+        Result(int departments, int employees, long memberships, long elapsedMillis, long changeSequence) {
+            this.departments = departments;
+            this.employees = employees;
+            this.memberships = memberships;
+            this.elapsedMillis = elapsedMillis;
+            this.changeSequence = changeSequence;
+        }
+        public int getDepartments() {
+            return departments;
+        }
+        public int getEmployees() {
+            return employees;
+        }
+        public long getMemberships() {
+            return memberships;
+        }
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        /**
+         * Returns the change log entry the loaded model is at least as new as; see {@link ChangeTracker}.
+         */
+        public long getChangeSequence() {
+            return changeSequence;
+        }
+        @Override
+        public String toString() {
+            return "Загружено отделов: " + departments + ", сотрудников: " + employees +
+                    ", связей: " + memberships + " за " + elapsedMillis + " мс";
+        }
+    }
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final OperationMetrics LOAD_ENTERPRISE = DatabaseMetrics.operation("loadEnterprise");
+
+    public static Result load(Enterprise enterprise) throws SQLException {
+        long start = System.nanoTime();
+        Map<Integer, Department> departmentsById = new HashMap<>();
+        int employees = 0;
+        long memberships = 0;
+        long changeSequence;
+        OperationMetrics.Timer timer = LOAD_ENTERPRISE.start();
+
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+            changeSequence = ChangeTracker.currentSequence(statement);
+            try (ResultSet resultSet = statement.executeQuery("SELECT id, name FROM departments ORDER BY id")) {
+                while (resultSet.next()) {
+                    Department department = new Department(resultSet.getString(2));
+                    department.setId(resultSet.getInt(1));
+                    departmentsById.put(department.getId(), department);
+                    enterprise.addDepartment(department);
+                }
+            }
+
+            String query = "SELECT ed.employee_id, ed.department_id, e.full_name, e.age, e.salary " +
+                    "FROM employee_department ed JOIN employees e ON e.id = ed.employee_id " +
+                    "ORDER BY ed.employee_id";
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                Employee current = null;
+                while (resultSet.next()) {
+                    int employeeId = resultSet.getInt(1);
+                    if (current == null || current.getId() != employeeId) {
+                        current = new Employee(resultSet.getString(3), resultSet.getInt(4), resultSet.getDouble(5));
+                        current.setId(employeeId);
+                        employees++;
+                    }
+                    Department department = departmentsById.get(resultSet.getInt(2));
+                    if (department != null) {
+                        department.attachEmployee(current);
+                        memberships++;
+                    }
+                }
+            }
+            timer.rowsRead(departmentsById.size() + memberships);
+        } catch (SQLException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new Result(departmentsById.size(), employees, memberships, elapsedMillis, changeSequence);
+    }
+}
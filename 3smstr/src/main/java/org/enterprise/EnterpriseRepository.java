@@ -0,0 +1,75 @@
+package org.enterprise;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Storage for employees, departments and memberships. {@link SqliteRepository} keeps them in the
+ * SQLite database through {@link DatabaseManager}; {@link InMemoryRepository} keeps them on the
+ * heap. The application reaches the active backend through {@link Repositories#get()}.
+ * <p>
+ * Methods mirror the SQLite semantics: ids are handed out in increasing order and never reused,
+ * removing an employee or a department removes its memberships, and scans return rows in id order.
+ */
+public interface EnterpriseRepository {
+    interface EmployeeRowHandler {
+        void accept(int id, String fullName, int age, double salary);
+    }
+    interface MembershipRowHandler {
+        void accept(int employeeId, int departmentId);
+    }
+
+    void initialize();
+    void close();
+
+    int saveEmployee(Employee employee);
+    Employee loadEmployee(int employeeId);
+    List<Employee> loadAllEmployees();
+    List<Employee> searchEmployees(String text, int limit);
+    int countEmployees();
+    List<Employee> loadEmployeesPage(EmployeeSortKey sortKey, boolean ascending, Object afterValue, int afterId, int limit);
+    List<Employee> loadEmployeesPageAt(EmployeeSortKey sortKey, boolean ascending, int offset, int limit);
+    void scanEmployees(EmployeeRowHandler handler);
+    void updateEmployee(Employee employee);
+    void removeEmployee(Employee employee);
+
+    int saveDepartment(Department department);
+    List<Department> loadAllDepartments();
+    boolean departmentExists(int departmentId);
+    void updateDepartment(Department department);
+    void removeDepartment(Department department);
+    List<DepartmentSummary> loadDepartmentSummaries();
+    DepartmentSummary loadDepartmentSummary(int departmentId);
+    SalaryTotals loadSalaryTotals();
+
+    void saveEmployeeDepartment(int employeeId, int departmentId);
+    boolean saveDepartmentMembers(Department department, List<Employee> employees);
+    List<Employee> loadDepartmentEmployees(Department department);
+    void deleteEmployeeDepartmentsForDepartment(int departmentId);
+    void scanDepartmentEmployeeIds(int departmentId, IntConsumer consumer);
+    void scanDepartmentEmployees(int departmentId, EmployeeRowHandler handler);
+    void scanEmployeeDepartmentIds(int employeeId, IntConsumer consumer);
+    void scanMemberships(MembershipRowHandler handler);
+
+    SalaryUpdate raiseSalaries(int departmentId, double percent, double amount);
+    SalaryUpdate clampSalaries(int minAge, int maxAge, double floor, double cap);
+    boolean moveDepartmentMembers(int fromDepartmentId, int toDepartmentId);
+
+    /**
+     * Writes a {@link UnitOfWork.ChangeSet} atomically; see {@link DatabaseManager#applyChanges}.
+     */
+    boolean applyChanges(UnitOfWork.ChangeSet changes);
+    /**
+     * Fills {@code enterprise} with every department and every employee that belongs to one.
+     */
+    EnterpriseLoader.Result loadEnterprise(Enterprise enterprise) throws SQLException;
+    /**
+     * Returns what other processes changed after {@code afterSequence}; see {@link ChangeTracker}.
+     */
+    ChangeTracker.Delta readChanges(long afterSequence) throws SQLException;
+    /**
+     * Opens the write side of a {@link CsvImporter} run.
+     */
+    CsvImporter.Target openImport() throws SQLException;
+}
@@ -0,0 +1,423 @@
+package org.enterprise;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless JSON API over an {@link EnterpriseRepository} on the JDK {@link HttpServer}. Every request runs
+ * on its own virtual thread when the runtime has them, so a request blocked on SQLite or on the
+ * connection pool costs no platform thread. Listings that can reach millions of rows are streamed
+ * with chunked transfer encoding straight from the repository scan. Analytics run over an
+ * {@link EmployeeColumns} snapshot that is reloaded once it is older than
+ * {@code enterprise.server.analyticsMaxAgeSeconds}, so the answers may lag recent edits by that much.
+ * <pre>
+ * GET /api/departments                  departments with salary totals
+ * GET /api/departments/{id}             one department with salary totals
+ * GET /api/departments/{id}/employees   members of a department (streamed)
+ * GET /api/employees                    all employees (streamed), or a page with ?afterId=&amp;limit=
+ * GET /api/employees/{id}               one employee with the ids of its departments
+ * GET /api/memberships                  all employee/department pairs (streamed)
+ * GET /api/salary                       salary totals for the whole enterprise
+ * GET /api/analytics                    salary by age band and top earners with ?bandWidth=&amp;top=,
+ *                                       plus one department's payroll with &amp;departmentId=
+ * GET /api/metrics                      per-operation database metrics
+ * </pre>
+ */
+public class EnterpriseServer {
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PAGE_SIZE = 10_000;
+
+    static {
+        // The JDK server flushes the headers before the body; without TCP_NODELAY every response waits
+        // for the client's delayed ACK (about 40 ms on Linux). Must be set before HttpServer loads.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final EnterpriseRepository repository;
+    private final long analyticsMaxAgeNanos = TimeUnit.SECONDS.toNanos(Long.getLong("enterprise.server.analyticsMaxAgeSeconds", 60));
+    // A lock rather than synchronized: the snapshot load blocks on the database, which would pin a virtual thread.
+    private final ReentrantLock columnsLock = new ReentrantLock();
+    private volatile EmployeeColumns columns;
+    private volatile long columnsLoadedAt;
+
+    public EnterpriseServer(InetSocketAddress address) throws IOException {
+        this(address, Repositories.get());
+    }
+    public EnterpriseServer(InetSocketAddress address, EnterpriseRepository repository) throws IOException {
+        this.repository = repository;
+        server = HttpServer.create(address, Integer.getInteger("enterprise.server.backlog", 1_024));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+    public void start() {
+        server.start();
+    }
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    /**
+     * Returns a virtual-thread-per-task executor, or a bounded pool of platform threads on runtimes
+     * where virtual threads are still a preview feature. The factory is looked up reflectively so
+     * the class also compiles against the Java 19 API.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Integer.getInteger("enterprise.server.threads", Runtime.getRuntime().availableProcessors() * 8);
+            System.err.println("Virtual threads are not available, serving requests on " + threads + " platform threads");
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            route(exchange, path, query);
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid number: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            // The client went away in the middle of a streamed response.
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+    private void route(HttpExchange exchange, String[] path, Map<String, String> query) throws IOException {
+        switch (path[0]) {
+            case "departments":
+                if (path.length == 1) {
+                    sendDepartments(exchange);
+                } else if (path.length == 2) {
+                    sendDepartment(exchange, Integer.parseInt(path[1]));
+                } else if (path.length == 3 && "employees".equals(path[2])) {
+                    streamDepartmentEmployees(exchange, Integer.parseInt(path[1]));
+                } else {
+                    sendError(exchange, 404, "Not found");
+                }
+                break;
+            case "employees":
+                if (path.length == 1 && query.containsKey("limit")) {
+                    sendEmployeesPage(exchange, Integer.parseInt(query.getOrDefault("afterId", "0")), Integer.parseInt(query.get("limit")));
+                } else if (path.length == 1) {
+                    streamEmployees(exchange);
+                } else if (path.length == 2) {
+                    sendEmployee(exchange, Integer.parseInt(path[1]));
+                } else {
+                    sendError(exchange, 404, "Not found");
+                }
+                break;
+            case "memberships":
+                streamMemberships(exchange);
+                break;
+            case "salary":
+                sendSalaryTotals(exchange);
+                break;
+            case "analytics":
+                sendAnalytics(exchange, Integer.parseInt(query.getOrDefault("bandWidth", "10")),
+                        Integer.parseInt(query.getOrDefault("top", "10")), query.get("departmentId"));
+                break;
+            case "metrics":
+                sendMetrics(exchange);
+                break;
+            default:
+                sendError(exchange, 404, "Not found");
+        }
+    }
+    private void sendDepartments(HttpExchange exchange) throws IOException {
+        List<DepartmentSummary> summaries = repository.loadDepartmentSummaries();
+        sendJson(exchange, 200, json -> {
+            json.beginArray();
+            for (DepartmentSummary summary : summaries) {
+                writeDepartment(json, summary);
+            }
+            json.endArray();
+        });
+    }
+    private void sendDepartment(HttpExchange exchange, int departmentId) throws IOException {
+        DepartmentSummary summary = repository.loadDepartmentSummary(departmentId);
+        if (summary == null) {
+            sendError(exchange, 404, "Department " + departmentId + " not found");
+            return;
+        }
+        sendJson(exchange, 200, json -> writeDepartment(json, summary));
+    }
+    private void streamDepartmentEmployees(HttpExchange exchange, int departmentId) throws IOException {
+        if (!repository.departmentExists(departmentId)) {
+            sendError(exchange, 404, "Department " + departmentId + " not found");
+            return;
+        }
+        try (JsonWriter json = openJson(exchange)) {
+            json.beginArray();
+            repository.scanDepartmentEmployees(departmentId, (id, fullName, age, salary) ->
+                    writeEmployee(json, id, fullName, age, salary));
+            json.endArray();
+        }
+    }
+    private void streamEmployees(HttpExchange exchange) throws IOException {
+        try (JsonWriter json = openJson(exchange)) {
+            json.beginArray();
+            repository.scanEmployees((id, fullName, age, salary) -> writeEmployee(json, id, fullName, age, salary));
+            json.endArray();
+        }
+    }
+    private void sendEmployeesPage(HttpExchange exchange, int afterId, int limit) throws IOException {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            sendError(exchange, 400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+            return;
+        }
+        List<Employee> employees = repository.loadEmployeesPage(EmployeeSortKey.ID, true, null, afterId, limit);
+        sendJson(exchange, 200, json -> {
+            json.beginObject().name("employees").beginArray();
+            for (Employee employee : employees) {
+                writeEmployee(json, employee.getId(), employee.getFullName(), employee.getAge(), employee.getSalary());
+            }
+            json.endArray().name("nextAfterId");
+            if (employees.size() == limit) {
+                json.value(employees.get(employees.size() - 1).getId());
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+        });
+    }
+    private void sendEmployee(HttpExchange exchange, int employeeId) throws IOException {
+        Employee employee = repository.loadEmployee(employeeId);
+        if (employee == null) {
+            sendError(exchange, 404, "Employee " + employeeId + " not found");
+            return;
+        }
+        List<Integer> departmentIds = new ArrayList<>();
+        repository.scanEmployeeDepartmentIds(employeeId, departmentIds::add);
+        sendJson(exchange, 200, json -> {
+            json.beginObject()
+                    .name("id").value(employee.getId())
+                    .name("fullName").value(employee.getFullName())
+                    .name("age").value(employee.getAge())
+                    .name("salary").value(employee.getSalary())
+                    .name("departmentIds").beginArray();
+            for (int departmentId : departmentIds) {
+                json.value(departmentId);
+            }
+            json.endArray().endObject();
+        });
+    }
+    private void streamMemberships(HttpExchange exchange) throws IOException {
+        try (JsonWriter json = openJson(exchange)) {
+            json.beginArray();
+            repository.scanMemberships((employeeId, departmentId) -> {
+                try {
+                    json.beginObject().name("employeeId").value(employeeId).name("departmentId").value(departmentId).endObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.endArray();
+        }
+    }
+    private void sendSalaryTotals(HttpExchange exchange) throws IOException {
+        SalaryTotals totals = repository.loadSalaryTotals();
+        sendJson(exchange, 200, json -> writeSalaryTotals(json, totals));
+    }
+    private void sendAnalytics(HttpExchange exchange, int bandWidth, int top, String departmentParameter) throws IOException {
+        if (bandWidth <= 0) {
+            sendError(exchange, 400, "bandWidth must be positive");
+            return;
+        }
+        if (top < 0 || top > MAX_PAGE_SIZE) {
+            sendError(exchange, 400, "top must be between 0 and " + MAX_PAGE_SIZE);
+            return;
+        }
+        int departmentId = departmentParameter == null ? 0 : Integer.parseInt(departmentParameter);
+        if (departmentParameter != null && !repository.departmentExists(departmentId)) {
+            sendError(exchange, 404, "Department " + departmentId + " not found");
+            return;
+        }
+        EmployeeColumns columns = columns();
+        long ageMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - columnsLoadedAt);
+        int[] bandCounts = columns.countByAgeBand(bandWidth);
+        double[] bandSalaries = columns.salaryByAgeBand(bandWidth);
+        int[] topRows = columns.topEarners(top);
+        BitSet departmentRows = departmentParameter == null ? null : columns.departmentBitmap(departmentId);
+        sendJson(exchange, 200, json -> {
+            json.beginObject()
+                    .name("snapshotAgeMillis").value(ageMillis)
+                    .name("employees").value(columns.size())
+                    .name("totalSalary").value(columns.sumSalary())
+                    .name("ageBands").beginArray();
+            for (int band = 0; band < bandCounts.length; band++) {
+                if (bandCounts[band] > 0) {
+                    json.beginObject()
+                            .name("fromAge").value((long) band * bandWidth)
+                            .name("employees").value(bandCounts[band])
+                            .name("totalSalary").value(bandSalaries[band])
+                            .endObject();
+                }
+            }
+            json.endArray().name("topEarners").beginArray();
+            for (int row : topRows) {
+                writeEmployee(json, columns.getId(row), columns.getName(row), columns.getAge(row), columns.getSalary(row));
+            }
+            json.endArray();
+            if (departmentRows != null) {
+                json.name("department").beginObject()
+                        .name("id").value(departmentId)
+                        .name("employees").value(departmentRows.cardinality())
+                        .name("totalSalary").value(columns.sumSalary(departmentRows))
+                        .endObject();
+            }
+            json.endObject();
+        });
+    }
+    /**
+     * Returns the analytics snapshot, reloading it when it is older than the configured maximum age.
+     * Concurrent requests that find it stale wait for a single reload instead of each scanning the table.
+     */
+    private EmployeeColumns columns() {
+        EmployeeColumns current = columns;
+        if (current != null && System.nanoTime() - columnsLoadedAt < analyticsMaxAgeNanos) {
+            return current;
+        }
+        columnsLock.lock();
+        try {
+            if (columns == null || System.nanoTime() - columnsLoadedAt >= analyticsMaxAgeNanos) {
+                long loadedAt = System.nanoTime();
+                EmployeeColumns loaded = EmployeeColumns.load(repository);
+                columnsLoadedAt = loadedAt;
+                columns = loaded;
+            }
+            return columns;
+        } finally {
+            columnsLock.unlock();
+        }
+    }
+    private void sendMetrics(HttpExchange exchange) throws IOException {
+        sendJson(exchange, 200, json -> {
+            json.beginObject();
+            for (OperationMetrics metrics : DatabaseMetrics.getOperations().values()) {
+                json.name(metrics.getName()).beginObject()
+                        .name("calls").value(metrics.getCalls())
+                        .name("errors").value(metrics.getErrors())
+                        .name("rowsRead").value(metrics.getRowsRead())
+                        .name("rowsWritten").value(metrics.getRowsWritten())
+                        .name("meanMillis").value(metrics.getMeanMillis())
+                        .name("p99Millis").value(metrics.getP99Millis())
+                        .name("maxMillis").value(metrics.getMaxMillis())
+                        .endObject();
+            }
+            json.endObject();
+        });
+    }
+    private static void writeDepartment(JsonWriter json, DepartmentSummary summary) throws IOException {
+        json.beginObject()
+                .name("id").value(summary.getId())
+                .name("name").value(summary.getName())
+                .name("salaries");
+        writeSalaryTotals(json, summary.getSalaries());
+        json.endObject();
+    }
+    private static void writeSalaryTotals(JsonWriter json, SalaryTotals totals) throws IOException {
+        json.beginObject()
+                .name("employees").value(totals.getEmployees())
+                .name("total").value(totals.getTotal())
+                .name("mean").value(totals.getMean())
+                .name("min").value(totals.getMin())
+                .name("max").value(totals.getMax())
+                .endObject();
+    }
+    private static void writeEmployee(JsonWriter json, int id, String fullName, int age, double salary) {
+        try {
+            json.beginObject()
+                    .name("id").value(id)
+                    .name("fullName").value(fullName)
+                    .name("age").value(age)
+                    .name("salary").value(salary)
+                    .endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * Renders a small body in memory and sends it with a Content-Length, so headers and body leave
+     * in one write instead of a chunk sequence that stalls on delayed ACKs.
+     */
+    private static void sendJson(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            body.write(json);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, buffer.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            buffer.writeTo(out);
+        }
+    }
+    /**
+     * Sends the headers with chunked transfer encoding and returns a writer for the body. Closing
+     * the writer ends the response.
+     */
+    private static JsonWriter openJson(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE));
+    }
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        sendJson(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
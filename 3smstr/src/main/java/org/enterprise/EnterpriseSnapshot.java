@@ -0,0 +1,315 @@
+package org.enterprise;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of the {@link Enterprise} graph, so a restart does not have to run the membership
+ * join again. The file is a fixed header (magic, version, change log sequence, body length, CRC-32
+ * of the body) followed by the database URL, the employees and, per department, its member ids.
+ * It is read through a memory-mapped {@link FileChannel} and checked against the CRC before any
+ * object is built.
+ * <p>
+ * A snapshot records the change log entry the model was at. On load the changes made after it are
+ * read through {@link ChangeTracker} and applied on top; when that is impossible (the snapshot
+ * belongs to another database, is newer than the log, or the log was pruned past it) the caller
+ * falls back to {@link EnterpriseLoader}. The file is written next to the database as
+ * {@code <file>.snapshot} unless {@code -Denterprise.snapshot} names another path or is empty.
+ */
+public class EnterpriseSnapshot {
+    private static final int MAGIC = 0x454E5453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long changeSequence;
+    private final String source;
+    private final int[] employeeIds;
+    private final String[] employeeNames;
+    private final int[] ages;
+    private final double[] salaries;
+    private final int[] departmentIds;
+    private final String[] departmentNames;
+    // Members of department i are memberIds[memberOffsets[i]] .. memberIds[memberOffsets[i + 1] - 1].
+    private final int[] memberOffsets;
+    private final int[] memberIds;
+
+    private EnterpriseSnapshot(long changeSequence, String source, int employees, int departments, int memberships) {
+        this.changeSequence = changeSequence;
+        this.source = source;
+        this.employeeIds = new int[employees];
+        this.employeeNames = new String[employees];
+        this.ages = new int[employees];
+        this.salaries = new double[employees];
+        this.departmentIds = new int[departments];
+        this.departmentNames = new String[departments];
+        this.memberOffsets = new int[departments + 1];
+        this.memberIds = new int[memberships];
+    }
+    /**
+     * Returns the snapshot file for the configured database, or null when snapshots are off or the
+     * database is not a file.
+     */
+    public static Path defaultFile() {
+        String configured = System.getProperty("enterprise.snapshot");
+        if (configured != null) {
+            return configured.isBlank() ? null : Path.of(configured);
+        }
+        String url = DatabaseManager.getUrl();
+        if (!url.startsWith("jdbc:sqlite:")) {
+            return null;
+        }
+        String database = url.substring("jdbc:sqlite:".length());
+        int query = database.indexOf('?');
+        if (query >= 0) {
+            database = database.substring(0, query);
+        }
+        if (database.isEmpty() || database.startsWith(":memory:") || database.startsWith("file:")) {
+            return null;
+        }
+        return Path.of(database + ".snapshot");
+    }
+    /**
+     * Copies the graph into flat arrays. Must run on the thread that edits the model; returns null
+     * when a department or an employee has not been saved yet and therefore has no id.
+     */
+    public static EnterpriseSnapshot capture(Enterprise enterprise, long changeSequence) {
+        List<Department> departments = enterprise.getDepartments();
+        IntObjectMap<Employee> employees = new IntObjectMap<>();
+        List<List<Employee>> members = new ArrayList<>(departments.size());
+        int memberships = 0;
+        for (Department department : departments) {
+            if (department.getId() == 0) {
+                return null;
+            }
+            members.add(department.getEmployees());
+            for (Employee employee : members.get(members.size() - 1)) {
+                if (employee.getId() == 0) {
+                    return null;
+                }
+                employees.put(employee.getId(), employee);
+                memberships++;
+            }
+        }
+
+        EnterpriseSnapshot snapshot = new EnterpriseSnapshot(changeSequence, DatabaseManager.getUrl(),
+                employees.size(), departments.size(), memberships);
+        int[] ids = employees.keys();
+        Arrays.sort(ids);
+        for (int i = 0; i < ids.length; i++) {
+            Employee employee = employees.get(ids[i]);
+            snapshot.employeeIds[i] = ids[i];
+            snapshot.employeeNames[i] = employee.getFullName();
+            snapshot.ages[i] = employee.getAge();
+            snapshot.salaries[i] = employee.getSalary();
+        }
+        int member = 0;
+        for (int i = 0; i < departments.size(); i++) {
+            Department department = departments.get(i);
+            snapshot.departmentIds[i] = department.getId();
+            snapshot.departmentNames[i] = department.getName();
+            snapshot.memberOffsets[i] = member;
+            for (Employee employee : members.get(i)) {
+                snapshot.memberIds[member++] = employee.getId();
+            }
+        }
+        snapshot.memberOffsets[departments.size()] = member;
+        return snapshot;
+    }
+    /**
+     * Fills {@code enterprise} from the snapshot at {@code file} and brings it up to date with the
+     * change log. Returns null, leaving {@code enterprise} untouched, when there is no usable
+     * snapshot; the reason is printed.
+     */
+    public static EnterpriseLoader.Result load(Enterprise enterprise, Path file) throws SQLException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        EnterpriseSnapshot snapshot;
+        try {
+            snapshot = read(file);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot " + file + " is unreadable, loading from the database: " + e);
+            return null;
+        }
+        if (snapshot == null) {
+            System.err.println("Snapshot " + file + " is corrupt, loading from the database.");
+            return null;
+        }
+        if (!snapshot.source.equals(DatabaseManager.getUrl())) {
+            System.err.println("Snapshot " + file + " belongs to " + snapshot.source + ", loading from the database.");
+            return null;
+        }
+        long latest;
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            latest = ChangeTracker.currentSequence(statement);
+        }
+        ChangeTracker.Delta delta = snapshot.changeSequence > latest ? null : ChangeTracker.readChanges(snapshot.changeSequence);
+        if (delta == null || delta.isFullReloadRequired()) {
+            System.err.println("Snapshot " + file + " is stale, loading from the database.");
+            return null;
+        }
+
+        snapshot.restore(enterprise);
+        ChangeTracker.apply(enterprise, delta);
+        int employees = 0;
+        long memberships = 0;
+        IntHashSet seen = new IntHashSet(snapshot.employeeIds.length);
+        for (Department department : enterprise.getDepartments()) {
+            for (Employee employee : department.getEmployees()) {
+                memberships++;
+                if (seen.add(employee.getId())) {
+                    employees++;
+                }
+            }
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new EnterpriseLoader.Result(enterprise.getDepartments().size(), employees, memberships, elapsedMillis,
+                delta.getSequence());
+    }
+    /**
+     * Reads a snapshot file. Returns null when the header or the checksum does not match.
+     */
+    static EnterpriseSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(16) != size - HEADER_SIZE) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_SIZE, (int) (size - HEADER_SIZE)));
+            if (crc.getValue() != buffer.getLong(24)) {
+                return null;
+            }
+            int departments = buffer.getInt(32);
+            buffer.position(HEADER_SIZE);
+            byte[] text = new byte[256];
+            String source = readString(buffer, text);
+            int employees = buffer.getInt();
+            int memberships = buffer.getInt();
+            EnterpriseSnapshot snapshot = new EnterpriseSnapshot(buffer.getLong(8), source, employees, departments, memberships);
+            for (int i = 0; i < employees; i++) {
+                snapshot.employeeIds[i] = buffer.getInt();
+                snapshot.ages[i] = buffer.getInt();
+                snapshot.salaries[i] = buffer.getDouble();
+                snapshot.employeeNames[i] = readString(buffer, text);
+            }
+            int member = 0;
+            for (int i = 0; i < departments; i++) {
+                snapshot.departmentIds[i] = buffer.getInt();
+                snapshot.departmentNames[i] = readString(buffer, text);
+                snapshot.memberOffsets[i] = member;
+                int count = buffer.getInt();
+                buffer.asIntBuffer().get(snapshot.memberIds, member, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                member += count;
+            }
+            snapshot.memberOffsets[departments] = member;
+            return snapshot;
+        }
+    }
+    /**
+     * Writes the snapshot to a temporary file and moves it over {@code file}, so a crash never
+     * leaves a half-written snapshot behind. Safe to call from any thread.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc));
+            writeString(out, source);
+            out.writeInt(employeeIds.length);
+            out.writeInt(memberIds.length);
+            for (int i = 0; i < employeeIds.length; i++) {
+                out.writeInt(employeeIds[i]);
+                out.writeInt(ages[i]);
+                out.writeDouble(salaries[i]);
+                writeString(out, employeeNames[i]);
+            }
+            for (int i = 0; i < departmentIds.length; i++) {
+                out.writeInt(departmentIds[i]);
+                writeString(out, departmentNames[i]);
+                out.writeInt(memberOffsets[i + 1] - memberOffsets[i]);
+                for (int member = memberOffsets[i]; member < memberOffsets[i + 1]; member++) {
+                    out.writeInt(memberIds[member]);
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(changeSequence)
+                    .putLong(channel.position() - HEADER_SIZE).putLong(crc.getValue()).putInt(departmentIds.length);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+    public int getEmployeeCount() {
+        return employeeIds.length;
+    }
+    private void restore(Enterprise enterprise) {
+        IntObjectMap<Employee> employees = new IntObjectMap<>(employeeIds.length);
+        for (int i = 0; i < employeeIds.length; i++) {
+            Employee employee = new Employee(employeeNames[i], ages[i], salaries[i]);
+            employee.setId(employeeIds[i]);
+            employees.put(employeeIds[i], employee);
+        }
+        for (int i = 0; i < departmentIds.length; i++) {
+            Department department = new Department(departmentNames[i]);
+            department.setId(departmentIds[i]);
+            enterprise.addDepartment(department);
+            for (int member = memberOffsets[i]; member < memberOffsets[i + 1]; member++) {
+                department.attachEmployee(employees.get(memberIds[member]));
+            }
+        }
+    }
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,976 @@
+package org.enterprise;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Heap-only backend for tests and hot read-mostly deployments. Rows live in {@link IntObjectMap}s
+ * keyed by id; an employee's departments are a small sorted {@code int[]} and a department's members
+ * an {@link IntHashSet}, so lookups and membership changes never box an id. Rows are immutable and
+ * replaced on update. Readers share a read lock and writers take the write lock; scans copy a chunk
+ * of rows under the lock and call the handler outside it, so a slow consumer does not block writers.
+ * Sorted orders for paging are built on first use and dropped by the next employee write.
+ * <p>
+ * {@link #copyOf(EnterpriseRepository)} starts from the contents of another backend, for example the
+ * SQLite database, without ever writing back to it.
+ */
+public class InMemoryRepository implements EnterpriseRepository {
+    private static final int SCAN_CHUNK = 1_000;
+    private static final int[] NO_IDS = new int[0];
+
+    private static final class EmployeeRow {
+        final int id;
+        final String fullName;
+        final int age;
+        final double salary;
+        // Normalized words of the name, each preceded by a space, for prefix search.
+        final String searchText;
+
+        EmployeeRow(int id, String fullName, int age, double salary) {
+            this.id = id;
+            this.fullName = fullName;
+            this.age = age;
+            this.salary = salary;
+            this.searchText = searchText(fullName);
+        }
+        Employee toEmployee() {
+            Employee employee = new Employee(fullName, age, salary);
+            employee.setId(id);
+            return employee;
+        }
+    }
+
+    private static final class DepartmentRow {
+        final int id;
+        final String name;
+
+        DepartmentRow(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntObjectMap<EmployeeRow> employees = new IntObjectMap<>();
+    private final IntObjectMap<DepartmentRow> departments = new IntObjectMap<>();
+    private final IntObjectMap<int[]> departmentsByEmployee = new IntObjectMap<>();
+    private final IntObjectMap<IntHashSet> employeesByDepartment = new IntObjectMap<>();
+    private final AtomicReferenceArray<int[]> sortedIds = new AtomicReferenceArray<>(EmployeeSortKey.values().length);
+    private int lastEmployeeId;
+    private int lastDepartmentId;
+
+    /**
+     * Returns a repository holding everything {@code source} holds, with the same ids.
+     */
+    public static InMemoryRepository copyOf(EnterpriseRepository source) {
+        InMemoryRepository copy = new InMemoryRepository();
+        copy.lock.writeLock().lock();
+        try {
+            for (Department department : source.loadAllDepartments()) {
+                copy.departments.put(department.getId(), new DepartmentRow(department.getId(), department.getName()));
+                copy.lastDepartmentId = Math.max(copy.lastDepartmentId, department.getId());
+            }
+            source.scanEmployees((id, fullName, age, salary) -> {
+                copy.employees.put(id, new EmployeeRow(id, fullName, age, salary));
+                copy.lastEmployeeId = Math.max(copy.lastEmployeeId, id);
+            });
+            source.scanMemberships(copy::addMembership);
+        } finally {
+            copy.lock.writeLock().unlock();
+        }
+        return copy;
+    }
+    @Override
+    public void initialize() {
+    }
+    @Override
+    public void close() {
+    }
+    @Override
+    public int saveEmployee(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            int employeeId = insertEmployee(employee.getFullName(), employee.getAge(), employee.getSalary());
+            employee.setId(employeeId);
+            return employeeId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public Employee loadEmployee(int employeeId) {
+        lock.readLock().lock();
+        try {
+            EmployeeRow row = employees.get(employeeId);
+            return row == null ? null : row.toEmployee();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    @Override
+    public List<Employee> loadAllEmployees() {
+        List<Employee> result = new ArrayList<>(countEmployees());
+        scanEmployees((id, fullName, age, salary) -> {
+            Employee employee = new Employee(fullName, age, salary);
+            employee.setId(id);
+            result.add(employee);
+        });
+        return result;
+    }
+    /**
+     * Matches like the SQLite full-text index: every word of {@code text} must start a word of the
+     * name, ignoring case, Latin diacritics and "ё" versus "е"; a query of digits also matches that id.
+     * Names are scanned in id order, so the cost grows with the number of employees.
+     */
+    @Override
+    public List<Employee> searchEmployees(String text, int limit) {
+        List<Employee> result = new ArrayList<>();
+        String words = text == null ? "" : searchText(text);
+        if (words.isEmpty() || limit <= 0) {
+            return result;
+        }
+        String[] prefixes = words.substring(1).split(" ");
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = " " + prefixes[i];
+        }
+        lock.readLock().lock();
+        try {
+            int exactId = 0;
+            if (text.trim().matches("\\d{1,9}")) {
+                exactId = Integer.parseInt(text.trim());
+                EmployeeRow row = employees.get(exactId);
+                if (row != null) {
+                    result.add(row.toEmployee());
+                }
+            }
+            for (int id : sortedIds(EmployeeSortKey.ID)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                EmployeeRow row = employees.get(id);
+                if (id != exactId && matches(row.searchText, prefixes)) {
+                    result.add(row.toEmployee());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    @Override
+    public int countEmployees() {
+        lock.readLock().lock();
+        try {
+            return employees.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    @Override
+    public List<Employee> loadEmployeesPage(EmployeeSortKey sortKey, boolean ascending, Object afterValue, int afterId, int limit) {
+        List<Employee> result = new ArrayList<>(Math.max(0, limit));
+        lock.readLock().lock();
+        try {
+            int[] order = sortedIds(sortKey);
+            // First position whose (value, id) is not below the bound; strictly greater when ascending.
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compareToBound(sortKey, employees.get(order[middle]), afterValue, afterId);
+                if (comparison < 0 || ascending && comparison == 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (ascending) {
+                for (int i = low; i < order.length && result.size() < limit; i++) {
+                    result.add(employees.get(order[i]).toEmployee());
+                }
+            } else {
+                for (int i = low - 1; i >= 0 && result.size() < limit; i--) {
+                    result.add(employees.get(order[i]).toEmployee());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    @Override
+    public List<Employee> loadEmployeesPageAt(EmployeeSortKey sortKey, boolean ascending, int offset, int limit) {
+        List<Employee> result = new ArrayList<>(Math.max(0, limit));
+        lock.readLock().lock();
+        try {
+            int[] order = sortedIds(sortKey);
+            for (int i = offset; i < order.length && result.size() < limit; i++) {
+                result.add(employees.get(order[ascending ? i : order.length - 1 - i]).toEmployee());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    @Override
+    public void scanEmployees(EmployeeRowHandler handler) {
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = sortedIds(EmployeeSortKey.ID);
+        } finally {
+            lock.readLock().unlock();
+        }
+        emitRows(ids, handler);
+    }
+    @Override
+    public void updateEmployee(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            if (employees.containsKey(employee.getId())) {
+                employees.put(employee.getId(), new EmployeeRow(employee.getId(), employee.getFullName(), employee.getAge(), employee.getSalary()));
+                invalidateValueOrders();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public void removeEmployee(Employee employee) {
+        lock.writeLock().lock();
+        try {
+            deleteEmployee(employee.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public int saveDepartment(Department department) {
+        lock.writeLock().lock();
+        try {
+            int departmentId = insertDepartment(department.getName());
+            department.setId(departmentId);
+            return departmentId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public List<Department> loadAllDepartments() {
+        List<Department> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (DepartmentRow row : sortedDepartments()) {
+                Department department = new Department(row.name);
+                department.setId(row.id);
+                result.add(department);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    @Override
+    public boolean departmentExists(int departmentId) {
+        lock.readLock().lock();
+        try {
+            return departments.containsKey(departmentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    @Override
+    public void updateDepartment(Department department) {
+        lock.writeLock().lock();
+        try {
+            if (departments.containsKey(department.getId())) {
+                departments.put(department.getId(), new DepartmentRow(department.getId(), department.getName()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public void removeDepartment(Department department) {
+        lock.writeLock().lock();
+        try {
+            deleteDepartment(department.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public List<DepartmentSummary> loadDepartmentSummaries() {
+        List<DepartmentSummary> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (DepartmentRow row : sortedDepartments()) {
+                result.add(summarize(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+    @Override
+    public DepartmentSummary loadDepartmentSummary(int departmentId) {
+        lock.readLock().lock();
+        try {
+            DepartmentRow row = departments.get(departmentId);
+            return row == null ? null : summarize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    @Override
+    public SalaryTotals loadSalaryTotals() {
+        double[] totals = {0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        lock.readLock().lock();
+        try {
+            employees.forEach((id, row) -> {
+                totals[0] += row.salary;
+                totals[1] = Math.min(totals[1], row.salary);
+                totals[2] = Math.max(totals[2], row.salary);
+            });
+            int count = employees.size();
+            return new SalaryTotals(count, totals[0], count == 0 ? 0 : totals[1], count == 0 ? 0 : totals[2]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    @Override
+    public void saveEmployeeDepartment(int employeeId, int departmentId) {
+        lock.writeLock().lock();
+        try {
+            if (!employees.containsKey(employeeId)) {
+                System.err.println("Employee with ID " + employeeId + " does not exist.");
+                return;
+            }
+            if (!departments.containsKey(departmentId)) {
+                System.err.println("Department with ID " + departmentId + " does not exist.");
+                return;
+            }
+            addMembership(employeeId, departmentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public boolean saveDepartmentMembers(Department department, List<Employee> members) {
+        lock.writeLock().lock();
+        try {
+            int departmentId = department.getId();
+            if (departmentId == 0) {
+                departmentId = insertDepartment(department.getName());
+                department.setId(departmentId);
+            } else if (!departments.containsKey(departmentId)) {
+                System.err.println("Department with ID " + departmentId + " does not exist.");
+                return false;
+            }
+            clearDepartment(departmentId);
+            for (Employee employee : members) {
+                if (!employees.containsKey(employee.getId())) {
+                    System.err.println("Employee with ID " + employee.getId() + " does not exist.");
+                } else {
+                    addMembership(employee.getId(), departmentId);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public List<Employee> loadDepartmentEmployees(Department department) {
+        List<Employee> result = new ArrayList<>();
+        scanDepartmentEmployees(department.getId(), (id, fullName, age, salary) -> {
+            Employee employee = new Employee(fullName, age, salary);
+            employee.setId(id);
+            result.add(employee);
+        });
+        return result;
+    }
+    @Override
+    public void deleteEmployeeDepartmentsForDepartment(int departmentId) {
+        lock.writeLock().lock();
+        try {
+            clearDepartment(departmentId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public void scanDepartmentEmployeeIds(int departmentId, IntConsumer consumer) {
+        for (int employeeId : departmentMemberIds(departmentId)) {
+            consumer.accept(employeeId);
+        }
+    }
+    @Override
+    public void scanDepartmentEmployees(int departmentId, EmployeeRowHandler handler) {
+        emitRows(departmentMemberIds(departmentId), handler);
+    }
+    @Override
+    public void scanEmployeeDepartmentIds(int employeeId, IntConsumer consumer) {
+        int[] departmentIds;
+        lock.readLock().lock();
+        try {
+            departmentIds = departmentsByEmployee.get(employeeId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (departmentIds != null) {
+            for (int departmentId : departmentIds) {
+                consumer.accept(departmentId);
+            }
+        }
+    }
+    @Override
+    public void scanMemberships(MembershipRowHandler handler) {
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = sortedIds(EmployeeSortKey.ID);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int[][] chunk = new int[SCAN_CHUNK][];
+        for (int from = 0; from < ids.length; from += SCAN_CHUNK) {
+            int to = Math.min(ids.length, from + SCAN_CHUNK);
+            lock.readLock().lock();
+            try {
+                for (int i = from; i < to; i++) {
+                    chunk[i - from] = departmentsByEmployee.get(ids[i]);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = from; i < to; i++) {
+                int[] departmentIds = chunk[i - from];
+                if (departmentIds != null) {
+                    for (int departmentId : departmentIds) {
+                        handler.accept(ids[i], departmentId);
+                    }
+                }
+            }
+        }
+    }
+    @Override
+    public SalaryUpdate raiseSalaries(int departmentId, double percent, double amount) {
+        SalaryUpdate update = new SalaryUpdate();
+        lock.writeLock().lock();
+        try {
+            IntHashSet members = employeesByDepartment.get(departmentId);
+            if (members != null) {
+                double factor = 1 + percent / 100;
+                members.forEach(employeeId -> {
+                    EmployeeRow row = employees.get(employeeId);
+                    double salary = BigDecimal.valueOf(row.salary * factor + amount).setScale(2, RoundingMode.HALF_UP).doubleValue();
+                    employees.put(employeeId, new EmployeeRow(employeeId, row.fullName, row.age, salary));
+                    update.add(employeeId, salary);
+                });
+                invalidateValueOrders();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return update;
+    }
+    @Override
+    public SalaryUpdate clampSalaries(int minAge, int maxAge, double floor, double cap) {
+        SalaryUpdate update = new SalaryUpdate();
+        lock.writeLock().lock();
+        try {
+            employees.forEach((employeeId, row) -> {
+                if (row.age >= minAge && row.age <= maxAge && (row.salary < floor || row.salary > cap)) {
+                    update.add(employeeId, Math.min(Math.max(row.salary, floor), cap));
+                }
+            });
+            for (int i = 0; i < update.size(); i++) {
+                EmployeeRow row = employees.get(update.getEmployeeId(i));
+                employees.put(row.id, new EmployeeRow(row.id, row.fullName, row.age, update.getSalary(i)));
+            }
+            invalidateValueOrders();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return update;
+    }
+    @Override
+    public boolean moveDepartmentMembers(int fromDepartmentId, int toDepartmentId) {
+        lock.writeLock().lock();
+        try {
+            for (int departmentId : new int[]{fromDepartmentId, toDepartmentId}) {
+                if (!departments.containsKey(departmentId)) {
+                    System.err.println("Department with ID " + departmentId + " does not exist.");
+                    return false;
+                }
+            }
+            IntHashSet members = employeesByDepartment.get(fromDepartmentId);
+            if (members != null && fromDepartmentId != toDepartmentId) {
+                members.forEach(employeeId -> addMembership(employeeId, toDepartmentId));
+                clearDepartment(fromDepartmentId);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    /**
+     * Applies the change set under the write lock, with the same rules as
+     * {@link DatabaseManager#applyChanges}. A membership that refers to an unsaved entity is detected
+     * before anything is written, so a failed change set leaves no trace.
+     */
+    @Override
+    public boolean applyChanges(UnitOfWork.ChangeSet changes) {
+        lock.writeLock().lock();
+        try {
+            Set<Object> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (UnitOfWork.DepartmentChange change : changes.newDepartments) {
+                inserted.add(change.department);
+            }
+            for (UnitOfWork.EmployeeChange change : changes.newEmployees) {
+                inserted.add(change.employee);
+            }
+            List<UnitOfWork.MembershipChange> memberships = new ArrayList<>(changes.removedMemberships);
+            memberships.addAll(changes.addedMemberships);
+            for (UnitOfWork.MembershipChange change : memberships) {
+                if (change.employee.getId() == 0 && !inserted.contains(change.employee)) {
+                    System.err.println("Employee " + change.employee.getFullName() + " has not been saved yet.");
+                    return false;
+                }
+                if (change.department.getId() == 0 && !inserted.contains(change.department)) {
+                    System.err.println("Department " + change.department.getName() + " has not been saved yet.");
+                    return false;
+                }
+            }
+
+            for (UnitOfWork.DepartmentChange change : changes.newDepartments) {
+                change.department.setId(insertDepartment(change.name));
+            }
+            for (UnitOfWork.EmployeeChange change : changes.newEmployees) {
+                change.employee.setId(insertEmployee(change.fullName, change.age, change.salary));
+            }
+            for (UnitOfWork.EmployeeChange change : changes.updatedEmployees) {
+                EmployeeRow row = employees.get(change.employee.getId());
+                if (row != null) {
+                    employees.put(row.id, new EmployeeRow(row.id,
+                            (change.fields & Employee.FULL_NAME) != 0 ? change.fullName : row.fullName,
+                            (change.fields & Employee.AGE) != 0 ? change.age : row.age,
+                            (change.fields & Employee.SALARY) != 0 ? change.salary : row.salary));
+                }
+            }
+            for (UnitOfWork.DepartmentChange change : changes.renamedDepartments) {
+                if (departments.containsKey(change.department.getId())) {
+                    departments.put(change.department.getId(), new DepartmentRow(change.department.getId(), change.name));
+                }
+            }
+            for (UnitOfWork.MembershipChange change : changes.removedMemberships) {
+                removeMembership(change.employee.getId(), change.department.getId());
+            }
+            for (UnitOfWork.MembershipChange change : changes.addedMemberships) {
+                addMembership(change.employee.getId(), change.department.getId());
+            }
+            for (Employee employee : changes.removedEmployees) {
+                deleteEmployee(employee.getId());
+            }
+            for (Department department : changes.removedDepartments) {
+                deleteDepartment(department.getId());
+            }
+            invalidateOrders();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public EnterpriseLoader.Result loadEnterprise(Enterprise enterprise) {
+        long start = System.nanoTime();
+        int loadedEmployees = 0;
+        long memberships = 0;
+        lock.readLock().lock();
+        try {
+            IntObjectMap<Department> loaded = new IntObjectMap<>(departments.size());
+            for (DepartmentRow row : sortedDepartments()) {
+                Department department = new Department(row.name);
+                department.setId(row.id);
+                loaded.put(row.id, department);
+                enterprise.addDepartment(department);
+            }
+            for (int employeeId : sortedIds(EmployeeSortKey.ID)) {
+                int[] departmentIds = departmentsByEmployee.get(employeeId);
+                if (departmentIds == null) {
+                    continue;
+                }
+                Employee employee = employees.get(employeeId).toEmployee();
+                loadedEmployees++;
+                for (int departmentId : departmentIds) {
+                    loaded.get(departmentId).attachEmployee(employee);
+                    memberships++;
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new EnterpriseLoader.Result(loaded.size(), loadedEmployees, memberships, elapsedMillis, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Always empty: nothing but this process can change the data.
+     */
+    @Override
+    public ChangeTracker.Delta readChanges(long afterSequence) {
+        return new ChangeTracker.Delta(afterSequence, false);
+    }
+    @Override
+    public CsvImporter.Target openImport() {
+        return new ImportTarget();
+    }
+    private int insertEmployee(String fullName, int age, double salary) {
+        int employeeId = ++lastEmployeeId;
+        employees.put(employeeId, new EmployeeRow(employeeId, fullName, age, salary));
+        invalidateOrders();
+        return employeeId;
+    }
+    private int insertDepartment(String name) {
+        int departmentId = ++lastDepartmentId;
+        departments.put(departmentId, new DepartmentRow(departmentId, name));
+        return departmentId;
+    }
+    private void deleteEmployee(int employeeId) {
+        if (employees.remove(employeeId) == null) {
+            return;
+        }
+        int[] departmentIds = departmentsByEmployee.remove(employeeId);
+        if (departmentIds != null) {
+            for (int departmentId : departmentIds) {
+                employeesByDepartment.get(departmentId).remove(employeeId);
+            }
+        }
+        invalidateOrders();
+    }
+    private void deleteDepartment(int departmentId) {
+        if (departments.remove(departmentId) != null) {
+            clearDepartment(departmentId);
+            employeesByDepartment.remove(departmentId);
+        }
+    }
+    private void clearDepartment(int departmentId) {
+        IntHashSet members = employeesByDepartment.get(departmentId);
+        if (members != null) {
+            members.forEach(employeeId -> removeFromEmployee(employeeId, departmentId));
+            members.clear();
+        }
+    }
+    private void addMembership(int employeeId, int departmentId) {
+        if (!employees.containsKey(employeeId) || !departments.containsKey(departmentId)) {
+            return;
+        }
+        IntHashSet members = employeesByDepartment.get(departmentId);
+        if (members == null) {
+            members = new IntHashSet();
+            employeesByDepartment.put(departmentId, members);
+        }
+        if (!members.add(employeeId)) {
+            return;
+        }
+        int[] departmentIds = departmentsByEmployee.get(employeeId);
+        if (departmentIds == null) {
+            departmentsByEmployee.put(employeeId, new int[]{departmentId});
+            return;
+        }
+        int position = -Arrays.binarySearch(departmentIds, departmentId) - 1;
+        int[] grown = new int[departmentIds.length + 1];
+        System.arraycopy(departmentIds, 0, grown, 0, position);
+        grown[position] = departmentId;
+        System.arraycopy(departmentIds, position, grown, position + 1, departmentIds.length - position);
+        departmentsByEmployee.put(employeeId, grown);
+    }
+    private void removeMembership(int employeeId, int departmentId) {
+        IntHashSet members = employeesByDepartment.get(departmentId);
+        if (members != null && members.remove(employeeId)) {
+            removeFromEmployee(employeeId, departmentId);
+        }
+    }
+    private void removeFromEmployee(int employeeId, int departmentId) {
+        int[] departmentIds = departmentsByEmployee.get(employeeId);
+        int position = departmentIds == null ? -1 : Arrays.binarySearch(departmentIds, departmentId);
+        if (position < 0) {
+            return;
+        }
+        if (departmentIds.length == 1) {
+            departmentsByEmployee.remove(employeeId);
+            return;
+        }
+        int[] shrunk = new int[departmentIds.length - 1];
+        System.arraycopy(departmentIds, 0, shrunk, 0, position);
+        System.arraycopy(departmentIds, position + 1, shrunk, position, shrunk.length - position);
+        departmentsByEmployee.put(employeeId, shrunk);
+    }
+    private int[] departmentMemberIds(int departmentId) {
+        lock.readLock().lock();
+        try {
+            IntHashSet members = employeesByDepartment.get(departmentId);
+            return members == null ? NO_IDS : members.toSortedArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    /**
+     * Calls the handler for the rows of {@code ids} that still exist, fetching them a chunk at a
+     * time so the lock is never held while the handler runs.
+     */
+    private void emitRows(int[] ids, EmployeeRowHandler handler) {
+        EmployeeRow[] chunk = new EmployeeRow[Math.min(ids.length, SCAN_CHUNK)];
+        for (int from = 0; from < ids.length; from += SCAN_CHUNK) {
+            int to = Math.min(ids.length, from + SCAN_CHUNK);
+            lock.readLock().lock();
+            try {
+                for (int i = from; i < to; i++) {
+                    chunk[i - from] = employees.get(ids[i]);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (int i = 0; i < to - from; i++) {
+                EmployeeRow row = chunk[i];
+                if (row != null) {
+                    handler.accept(row.id, row.fullName, row.age, row.salary);
+                }
+            }
+        }
+    }
+    private DepartmentSummary summarize(DepartmentRow row) {
+        IntHashSet members = employeesByDepartment.get(row.id);
+        double[] totals = {0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        int count = members == null ? 0 : members.size();
+        if (members != null) {
+            members.forEach(employeeId -> {
+                double salary = employees.get(employeeId).salary;
+                totals[0] += salary;
+                totals[1] = Math.min(totals[1], salary);
+                totals[2] = Math.max(totals[2], salary);
+            });
+        }
+        SalaryTotals salaries = new SalaryTotals(count, totals[0], count == 0 ? 0 : totals[1], count == 0 ? 0 : totals[2]);
+        return new DepartmentSummary(row.id, row.name, salaries);
+    }
+    private List<DepartmentRow> sortedDepartments() {
+        int[] ids = departments.keys();
+        Arrays.sort(ids);
+        List<DepartmentRow> rows = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            rows.add(departments.get(id));
+        }
+        return rows;
+    }
+    /**
+     * Returns employee ids ordered by the sort key and then by id. Must be called under a lock; the
+     * array is shared and must not be modified.
+     */
+    private int[] sortedIds(EmployeeSortKey sortKey) {
+        int[] order = sortedIds.get(sortKey.ordinal());
+        if (order != null) {
+            return order;
+        }
+        int[] ids = employees.keys();
+        switch (sortKey) {
+            case ID:
+                Arrays.sort(ids);
+                order = ids;
+                break;
+            case AGE:
+                long[] packed = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    packed[i] = (long) employees.get(ids[i]).age << 32 | ids[i];
+                }
+                Arrays.sort(packed);
+                order = new int[ids.length];
+                for (int i = 0; i < packed.length; i++) {
+                    order[i] = (int) packed[i];
+                }
+                break;
+            default:
+                EmployeeRow[] rows = new EmployeeRow[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    rows[i] = employees.get(ids[i]);
+                }
+                Comparator<EmployeeRow> comparator = sortKey == EmployeeSortKey.NAME
+                        ? (a, b) -> compareNames(a.fullName, b.fullName)
+                        : (a, b) -> Double.compare(a.salary, b.salary);
+                Arrays.sort(rows, comparator.thenComparingInt(row -> row.id));
+                order = new int[ids.length];
+                for (int i = 0; i < rows.length; i++) {
+                    order[i] = rows[i].id;
+                }
+        }
+        sortedIds.set(sortKey.ordinal(), order);
+        return order;
+    }
+    private void invalidateOrders() {
+        for (int i = 0; i < sortedIds.length(); i++) {
+            sortedIds.set(i, null);
+        }
+    }
+    // An update keeps the set of ids, so the id order stays valid.
+    private void invalidateValueOrders() {
+        for (EmployeeSortKey sortKey : EmployeeSortKey.values()) {
+            if (sortKey != EmployeeSortKey.ID) {
+                sortedIds.set(sortKey.ordinal(), null);
+            }
+        }
+    }
+    private static int compareToBound(EmployeeSortKey sortKey, EmployeeRow row, Object value, int id) {
+        int comparison;
+        switch (sortKey) {
+            case NAME:
+                comparison = compareNames(row.fullName, (String) value);
+                break;
+            case AGE:
+                // A null bound is a NULL key, which sorts before every stored number.
+                comparison = value == null ? 1 : Integer.compare(row.age, ((Number) value).intValue());
+                break;
+            case SALARY:
+                comparison = value == null ? 1 : Double.compare(row.salary, ((Number) value).doubleValue());
+                break;
+            default:
+                comparison = 0;
+        }
+        return comparison != 0 ? comparison : Integer.compare(row.id, id);
+    }
+    // SQLite sorts NULL before any text.
+    private static int compareNames(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+    private static boolean matches(String searchText, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (!searchText.contains(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Lower-cases the words of {@code text}, folds "ё" to "е" and strips diacritics from Latin letters,
+     * the way the {@code unicode61} tokenizer of the full-text index does, and joins them with a
+     * leading space before each word.
+     */
+    static String searchText(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.replace('ё', 'е').replace('Ё', 'Е'), Normalizer.Form.NFD);
+        StringBuilder words = new StringBuilder(decomposed.length() + 1);
+        char base = 0;
+        boolean inWord = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                if (base >= 0x250 && inWord) {
+                    words.append(c);
+                }
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (!inWord) {
+                    words.append(' ');
+                    inWord = true;
+                }
+                words.append(c);
+                base = c;
+            } else {
+                inWord = false;
+            }
+        }
+        return Normalizer.normalize(words.toString().toLowerCase(Locale.ROOT), Normalizer.Form.NFC);
+    }
+
+    /**
+     * Import target that writes straight into the maps and undoes the rows of an uncommitted chunk
+     * on rollback.
+     */
+    private class ImportTarget implements CsvImporter.Target {
+        private final IntHashSet chunkEmployees = new IntHashSet();
+        private final IntHashSet chunkDepartments = new IntHashSet();
+
+        @Override
+        public Map<String, Integer> loadDepartmentIds() {
+            Map<String, Integer> departmentIds = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (DepartmentRow row : sortedDepartments()) {
+                    departmentIds.putIfAbsent(row.name, row.id);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return departmentIds;
+        }
+        @Override
+        public int insertEmployee(String fullName, int age, double salary) {
+            lock.writeLock().lock();
+            try {
+                int employeeId = InMemoryRepository.this.insertEmployee(fullName, age, salary);
+                chunkEmployees.add(employeeId);
+                return employeeId;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        @Override
+        public int insertDepartment(String name) {
+            lock.writeLock().lock();
+            try {
+                int departmentId = InMemoryRepository.this.insertDepartment(name);
+                chunkDepartments.add(departmentId);
+                return departmentId;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        @Override
+        public void insertMembership(int employeeId, int departmentId) {
+            lock.writeLock().lock();
+            try {
+                addMembership(employeeId, departmentId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        @Override
+        public void commit() {
+            chunkEmployees.clear();
+            chunkDepartments.clear();
+        }
+        @Override
+        public void rollback() {
+            lock.writeLock().lock();
+            try {
+                chunkEmployees.forEach(InMemoryRepository.this::deleteEmployee);
+                chunkDepartments.forEach(InMemoryRepository.this::deleteDepartment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            commit();
+        }
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.enterprise;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of {@code int} values with open addressing and linear probing, the companion of
+ * {@link IntObjectMap}. Zero marks a free slot, so the value 0 is tracked by a separate flag.
+ * Not thread-safe.
+ */
+public class IntHashSet {
+    private int[] slots;
+    private boolean containsZero;
+    private int size;
+    private int mask;
+    private int shift;
+
+    public IntHashSet() {
+        this(16);
+    }
+    public IntHashSet(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    public boolean contains(int value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        for (int slot = slot(value); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+    public boolean add(int value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return false;
+            }
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            int[] old = slots;
+            allocate(old.length * 2);
+            for (int element : old) {
+                if (element != 0) {
+                    insert(element);
+                }
+            }
+        }
+        return true;
+    }
+    public boolean remove(int value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        for (int slot = slot(value); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+    public void clear() {
+        Arrays.fill(slots, 0);
+        containsZero = false;
+        size = 0;
+    }
+    public void forEach(IntConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(0);
+        }
+        for (int value : slots) {
+            if (value != 0) {
+                consumer.accept(value);
+            }
+        }
+    }
+    public int[] toSortedArray() {
+        int[] result = new int[size];
+        int count = 0;
+        if (containsZero) {
+            result[count++] = 0;
+        }
+        for (int value : slots) {
+            if (value != 0) {
+                result[count++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+    private void insert(int value) {
+        int slot = slot(value);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+    }
+    private int slot(int value) {
+        return (value * 0x9E3779B9) >>> shift;
+    }
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (slots[slot] == 0) {
+                break;
+            }
+            int home = slot(slots[slot]);
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                slots[free] = slots[slot];
+                free = slot;
+            }
+        }
+        slots[free] = 0;
+    }
+}
@@ -0,0 +1,142 @@
+package org.enterprise;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON writer. Values are written straight to the underlying {@link Writer}, so a
+ * listing of any size needs no more memory than the writer's buffer. Several top-level values may
+ * be written one after another, which together with a newline between them gives JSON Lines.
+ */
+public class JsonWriter implements Flushable, Closeable {
+    private final Writer out;
+    private boolean[] hasElements = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+    public JsonWriter beginObject() throws IOException {
+        separator();
+        out.write('{');
+        push();
+        return this;
+    }
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        out.write('}');
+        return this;
+    }
+    public JsonWriter beginArray() throws IOException {
+        separator();
+        out.write('[');
+        push();
+        return this;
+    }
+    public JsonWriter endArray() throws IOException {
+        depth--;
+        out.write(']');
+        return this;
+    }
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        string(value);
+        return this;
+    }
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        out.write(Long.toString(value));
+        return this;
+    }
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        separator();
+        out.write(Double.toString(value));
+        return this;
+    }
+    public JsonWriter value(boolean value) throws IOException {
+        separator();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+    public JsonWriter nullValue() throws IOException {
+        separator();
+        out.write("null");
+        return this;
+    }
+    public JsonWriter newLine() throws IOException {
+        out.write('\n');
+        return this;
+    }
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    private void push() {
+        if (++depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth] = false;
+    }
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasElements[depth]) {
+                out.write(',');
+            }
+            hasElements[depth] = true;
+        }
+    }
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                escape = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            out.write(value, start, i - start);
+            out.write(escape);
+            start = i + 1;
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+    }
+}
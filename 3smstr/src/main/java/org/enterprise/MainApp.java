@@ -1,9 +1,118 @@
 package org.enterprise;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
 public class MainApp {
     public static void main(String[] args) {
-        DatabaseManager.createTables();
+        EnterpriseRepository repository = Repositories.get();
+        Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+        DatabaseMetrics.startLoggingFromSystemProperties();
+        repository.initialize();
+
+        if (args.length > 0) {
+            runCommand(args);
+            return;
+        }
+
         EnterpriseGUI enterpriseGUI = new EnterpriseGUI();
         enterpriseGUI.showMainFrame();
     }
-}
\ No newline at end of file
+    private static void runCommand(String[] args) {
+        switch (args[0]) {
+            case "--import":
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+                importCsv(Path.of(args[1]));
+                break;
+            case "--export":
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+                exportFile(Path.of(args[1]));
+                break;
+            case "--generate":
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+                generateDataset(args);
+                break;
+            case "--server":
+                startServer(args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("enterprise.server.port", 8080));
+                break;
+            default:
+                usage();
+        }
+    }
+    private static void importCsv(Path file) {
+        CsvImporter importer = new CsvImporter((rows, bytesRead, totalBytes) ->
+                System.out.printf("%,d rows, %d%%%n", rows, totalBytes == 0 ? 100 : bytesRead * 100 / totalBytes));
+        try {
+            System.out.println(importer.importFile(file));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    private static void exportFile(Path file) {
+        EmployeeExporter exporter = new EmployeeExporter((rows, elapsedMillis) ->
+                System.out.printf("%,d rows, %,d rows/s%n", rows, elapsedMillis == 0 ? rows : rows * 1000 / elapsedMillis));
+        try {
+            System.out.println(exporter.exportFile(file));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    private static void generateDataset(String[] args) {
+        DatasetGenerator generator = new DatasetGenerator();
+        if (args.length > 2) {
+            generator.setEmployees(Long.parseLong(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setDepartments(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.setMembershipsPerEmployee(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            generator.setSalaryDistribution(DatasetGenerator.SalaryDistribution.valueOf(args[5].toUpperCase()));
+        }
+        if (args.length > 6) {
+            generator.setSeed(Long.parseLong(args[6]));
+        }
+        generator.setProgressListener((employees, total) ->
+                System.out.printf("%,d / %,d employees%n", employees, total));
+        try {
+            System.out.println(generator.generate(Path.of(args[1])));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("Generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    private static void startServer(int port) {
+        try {
+            EnterpriseServer server = new EnterpriseServer(new InetSocketAddress(port));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            server.start();
+            System.out.println("Listening on http://localhost:" + server.getPort() + "/api/");
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Server failed to start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    private static void usage() {
+        System.err.println("Usage: java -jar Enterprise.jar [--import <employees.csv> | --export <file.csv|file.jsonl>[.gz] | --server [port] | " +
+                "--generate <file.db> [employees] [departments] [memberships per employee] [uniform|normal|lognormal] [seed]]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,106 @@
+package org.enterprise;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+    public String getName() {
+        return name;
+    }
+    public Timer start() {
+        return new Timer(this);
+    }
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / 1e6;
+    }
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileNanos(50) / 1e6;
+    }
+    @Override
+    public double getP95Millis() {
+        return latency.getPercentileNanos(95) / 1e6;
+    }
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileNanos(99) / 1e6;
+    }
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / 1e6;
+    }
+    @Override
+    public void reset() {
+        errors.reset();
+        rowsRead.reset();
+        rowsWritten.reset();
+        latency.reset();
+    }
+    @Override
+    public String toString() {
+        return String.format("%s calls=%d errors=%d rowsRead=%d rowsWritten=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                name, getCalls(), getErrors(), getRowsRead(), getRowsWritten(),
+                getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+    }
+
+    /**
+     * Measures one call: created by {@link #start()}, fed row counts while the call runs and closed in
+     * a {@code finally} block.
+     */
+    public static class Timer {
+        private final OperationMetrics metrics;
+        private final long startNanos = System.nanoTime();
+        private long read;
+        private long written;
+        private boolean failed;
+
+        Timer(OperationMetrics metrics) {
+            this.metrics = metrics;
+        }
+        public void rowRead() {
+            read++;
+        }
+        public void rowsRead(long rows) {
+            read += rows;
+        }
+        public void rowsWritten(long rows) {
+            written += rows;
+        }
+        public void failed() {
+            failed = true;
+        }
+        public void stop() {
+            metrics.latency.record(System.nanoTime() - startNanos);
+            metrics.rowsRead.add(read);
+            metrics.rowsWritten.add(written);
+            if (failed) {
+                metrics.errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.enterprise;
+
+public interface OperationMetricsMBean {
+    long getCalls();
+    long getErrors();
+    long getRowsRead();
+    long getRowsWritten();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP95Millis();
+    double getP99Millis();
+    double getMaxMillis();
+    void reset();
+}
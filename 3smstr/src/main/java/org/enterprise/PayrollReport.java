@@ -0,0 +1,149 @@
+package org.enterprise;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+
+import static org.enterprise.PayrollReportEngine.AGE_BUCKETS;
+import static org.enterprise.PayrollReportEngine.HISTOGRAM_BINS;
+
+/**
+ * Result of {@link PayrollReportEngine#compute}: headcount and payroll per department and age
+ * bucket, the same for the whole enterprise (each employee counted once), salary histograms over
+ * a common range, and each department's share of the payroll and average against the enterprise's.
+ */
+public class PayrollReport {
+    private static final int BAR_WIDTH = 40;
+
+    private final PayrollReportEngine.Mode mode;
+    private final int threads;
+    private final String[] departmentNames;
+    private final PayrollReportEngine.Cells departments;
+    private final PayrollReportEngine.Cells enterprise;
+    private final double binStart;
+    private final double binWidth;
+    private final long elapsedNanos;
+
+    PayrollReport(PayrollReportEngine.Mode mode, int threads, String[] departmentNames,
+                  PayrollReportEngine.Cells departments, PayrollReportEngine.Cells enterprise,
+                  double binStart, double binWidth, long elapsedNanos) {
+        this.mode = mode;
+        this.threads = threads;
+        this.departmentNames = departmentNames;
+        this.departments = departments;
+        this.enterprise = enterprise;
+        this.binStart = binStart;
+        this.binWidth = binWidth;
+        this.elapsedNanos = elapsedNanos;
+    }
+    public int getDepartmentCount() {
+        return departmentNames.length;
+    }
+    public long getHeadcount(int department) {
+        return sum(departments.counts, department);
+    }
+    public double getTotalSalary(int department) {
+        return sum(departments.sumCents, department) / 100.0;
+    }
+    public long getEnterpriseHeadcount() {
+        return sum(enterprise.counts, 0);
+    }
+    public double getEnterpriseTotalSalary() {
+        return sum(enterprise.sumCents, 0) / 100.0;
+    }
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    public String render() {
+        int buckets = AGE_BUCKETS.length;
+        // Roughly one 80-character line per department and bucket, plus the histograms and the comparison.
+        StringBuilder output = new StringBuilder(2_048 + departmentNames.length * (buckets + 5) * 80);
+        Formatter formatter = new Formatter(output);
+        formatter.format("Отчёт по зарплатам (%s, потоков: %d, %d мс)%n%n",
+                mode == PayrollReportEngine.Mode.PARALLEL ? "параллельно" : "последовательно",
+                threads, elapsedNanos / 1_000_000);
+
+        long headcount = getEnterpriseHeadcount();
+        double total = getEnterpriseTotalSalary();
+        double average = headcount == 0 ? 0 : total / headcount;
+        output.append("Всего по предприятию:\n");
+        renderGroup(formatter, enterprise, 0);
+        output.append("Распределение зарплат:\n");
+        renderHistogram(formatter, enterprise.histogram, 0);
+
+        Integer[] order = new Integer[departmentNames.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer department) -> sum(departments.sumCents, department)).reversed());
+        output.append("\nСравнение отделов:\n");
+        formatter.format("  %4s  %-30s %12s %16s %8s %12s %10s%n",
+                "№", "Отдел", "Сотрудников", "Фонд", "Доля, %", "Средняя", "К средней, %");
+        for (int rank = 0; rank < order.length; rank++) {
+            int department = order[rank];
+            long count = getHeadcount(department);
+            double payroll = getTotalSalary(department);
+            double departmentAverage = count == 0 ? 0 : payroll / count;
+            formatter.format("  %4d  %-30s %12d %16.2f %8.2f %12.2f %10.1f%n", rank + 1, departmentNames[department],
+                    count, payroll, total == 0 ? 0 : payroll * 100 / total, departmentAverage,
+                    average == 0 ? 0 : departmentAverage * 100 / average);
+        }
+
+        output.append("\nПо отделам:\n");
+        for (int department = 0; department < departmentNames.length; department++) {
+            output.append(departmentNames[department]).append(":\n");
+            renderGroup(formatter, departments, department);
+            renderHistogram(formatter, departments.histogram, department);
+            output.append('\n');
+        }
+        formatter.flush();
+        return output.toString();
+    }
+    private void renderGroup(Formatter formatter, PayrollReportEngine.Cells cells, int group) {
+        int buckets = AGE_BUCKETS.length;
+        long count = 0;
+        long cents = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int cell = group * buckets + bucket;
+            if (cells.counts[cell] == 0) {
+                continue;
+            }
+            count += cells.counts[cell];
+            cents += cells.sumCents[cell];
+            min = Math.min(min, cells.min[cell]);
+            max = Math.max(max, cells.max[cell]);
+            formatter.format("  %-8s сотрудников %8d  фонд %16.2f  средняя %10.2f  мин %10.2f  макс %10.2f%n",
+                    AGE_BUCKETS[bucket], cells.counts[cell], cells.sumCents[cell] / 100.0,
+                    cells.sumCents[cell] / 100.0 / cells.counts[cell], cells.min[cell], cells.max[cell]);
+        }
+        if (count == 0) {
+            formatter.format("  нет сотрудников%n");
+            return;
+        }
+        formatter.format("  %-8s сотрудников %8d  фонд %16.2f  средняя %10.2f  мин %10.2f  макс %10.2f%n",
+                "итого", count, cents / 100.0, cents / 100.0 / count, min, max);
+    }
+    private void renderHistogram(Formatter formatter, long[] histogram, int group) {
+        long largest = 0;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            largest = Math.max(largest, histogram[group * HISTOGRAM_BINS + bin]);
+        }
+        if (largest == 0) {
+            return;
+        }
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            long count = histogram[group * HISTOGRAM_BINS + bin];
+            formatter.format("  %10.2f - %-10.2f %8d %s%n", binStart + bin * binWidth, binStart + (bin + 1) * binWidth,
+                    count, "#".repeat((int) (count * BAR_WIDTH / largest)));
+        }
+    }
+    private static long sum(long[] values, int group) {
+        long sum = 0;
+        for (int bucket = 0; bucket < AGE_BUCKETS.length; bucket++) {
+            sum += values[group * AGE_BUCKETS.length + bucket];
+        }
+        return sum;
+    }
+}
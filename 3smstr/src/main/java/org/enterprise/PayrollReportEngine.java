@@ -0,0 +1,248 @@
+package org.enterprise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes {@link PayrollReport}s: headcount, payroll and salary range per department and age
+ * bucket, salary histograms and a comparison of departments. The model is first copied into flat
+ * arrays by {@link #capture(Enterprise)} on the thread that owns it; the aggregation then runs
+ * without touching the model, split over ranges of memberships on a {@link ForkJoinPool} with one
+ * worker per core, or in one thread in {@link Mode#SEQUENTIAL} mode for comparison. Sums are kept
+ * in whole cents, so both modes produce identical reports.
+ */
+public class PayrollReportEngine {
+    public enum Mode {
+        PARALLEL, SEQUENTIAL
+    }
+
+    static final String[] AGE_BUCKETS = {"до 20", "20-29", "30-39", "40-49", "50-59", "60+"};
+    static final int HISTOGRAM_BINS = 10;
+    private static final int LEAF_SIZE = 32_768;
+
+    /**
+     * Salaries and ages of the model at one point in time. Department {@code i} owns memberships
+     * {@code memberOffsets[i]} to {@code memberOffsets[i + 1] - 1}; an employee in two departments
+     * appears in both, but only once among the org-wide employees.
+     */
+    public static final class Data {
+        final String[] departmentNames;
+        final int[] memberOffsets;
+        final int[] memberAges;
+        final double[] memberSalaries;
+        final int[] employeeAges;
+        final double[] employeeSalaries;
+        final double minSalary;
+        final double maxSalary;
+
+        private Data(String[] departmentNames, int[] memberOffsets, int[] memberAges, double[] memberSalaries,
+                     int[] employeeAges, double[] employeeSalaries, double minSalary, double maxSalary) {
+            this.departmentNames = departmentNames;
+            this.memberOffsets = memberOffsets;
+            this.memberAges = memberAges;
+            this.memberSalaries = memberSalaries;
+            this.employeeAges = employeeAges;
+            this.employeeSalaries = employeeSalaries;
+            this.minSalary = minSalary;
+            this.maxSalary = maxSalary;
+        }
+        public int getDepartmentCount() {
+            return departmentNames.length;
+        }
+        public int getEmployeeCount() {
+            return employeeAges.length;
+        }
+    }
+
+    /**
+     * Counts, cent sums and extremes per group and age bucket plus a salary histogram per group,
+     * for the memberships of one range; ranges are merged pairwise.
+     */
+    static final class Cells {
+        final long[] counts;
+        final long[] sumCents;
+        final double[] min;
+        final double[] max;
+        final long[] histogram;
+
+        Cells(int groups) {
+            int cells = groups * AGE_BUCKETS.length;
+            counts = new long[cells];
+            sumCents = new long[cells];
+            min = new double[cells];
+            max = new double[cells];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            histogram = new long[groups * HISTOGRAM_BINS];
+        }
+        void merge(Cells other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+                sumCents[i] += other.sumCents[i];
+                min[i] = Math.min(min[i], other.min[i]);
+                max[i] = Math.max(max[i], other.max[i]);
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveTask<Cells> {
+        private final int[] offsets;
+        private final int[] ages;
+        private final double[] salaries;
+        private final double binStart;
+        private final double binWidth;
+        private final int from;
+        private final int to;
+
+        RangeTask(int[] offsets, int[] ages, double[] salaries, double binStart, double binWidth, int from, int to) {
+            this.offsets = offsets;
+            this.ages = ages;
+            this.salaries = salaries;
+            this.binStart = binStart;
+            this.binWidth = binWidth;
+            this.from = from;
+            this.to = to;
+        }
+        @Override
+        protected Cells compute() {
+            if (to - from <= LEAF_SIZE) {
+                return accumulate();
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(offsets, ages, salaries, binStart, binWidth, from, middle);
+            RangeTask right = new RangeTask(offsets, ages, salaries, binStart, binWidth, middle, to);
+            left.fork();
+            Cells cells = right.compute();
+            cells.merge(left.join());
+            return cells;
+        }
+        Cells accumulate() {
+            Cells cells = new Cells(offsets.length - 1);
+            // Last group starting at or before 'from'; empty groups are skipped by the loop below.
+            int search = Arrays.binarySearch(offsets, from);
+            int group = search >= 0 ? search : -search - 2;
+            for (int i = from; i < to; i++) {
+                while (offsets[group + 1] <= i) {
+                    group++;
+                }
+                double salary = salaries[i];
+                int cell = group * AGE_BUCKETS.length + ageBucket(ages[i]);
+                cells.counts[cell]++;
+                cells.sumCents[cell] += Math.round(salary * 100);
+                if (salary < cells.min[cell]) {
+                    cells.min[cell] = salary;
+                }
+                if (salary > cells.max[cell]) {
+                    cells.max[cell] = salary;
+                }
+                int bin = binWidth > 0 ? (int) ((salary - binStart) / binWidth) : 0;
+                cells.histogram[group * HISTOGRAM_BINS + Math.max(0, Math.min(HISTOGRAM_BINS - 1, bin))]++;
+            }
+            return cells;
+        }
+    }
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool(Integer.getInteger("enterprise.report.threads",
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    private final Mode mode;
+
+    public PayrollReportEngine(Mode mode) {
+        this.mode = mode;
+    }
+    /**
+     * Uses {@code -Denterprise.report.mode=parallel|sequential}, parallel by default.
+     */
+    public static PayrollReportEngine fromSystemProperties() {
+        return new PayrollReportEngine(Mode.valueOf(System.getProperty("enterprise.report.mode", "parallel").toUpperCase()));
+    }
+    public Mode getMode() {
+        return mode;
+    }
+    /**
+     * Copies what the reports need out of the model, one membership snapshot per department.
+     */
+    public static Data capture(Enterprise enterprise) {
+        List<Department> departments = enterprise.getDepartments();
+        String[] names = new String[departments.size()];
+        List<List<Employee>> members = new ArrayList<>(departments.size());
+        int[] offsets = new int[departments.size() + 1];
+        int memberships = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = departments.get(i).getName();
+            members.add(departments.get(i).getEmployees());
+            offsets[i] = memberships;
+            memberships += members.get(i).size();
+        }
+        offsets[names.length] = memberships;
+
+        int[] memberAges = new int[memberships];
+        double[] memberSalaries = new double[memberships];
+        int[] employeeAges = new int[memberships];
+        double[] employeeSalaries = new double[memberships];
+        IntHashSet seen = new IntHashSet(memberships);
+        int employees = 0;
+        int member = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (List<Employee> department : members) {
+            for (Employee employee : department) {
+                int age = employee.getAge();
+                double salary = employee.getSalary();
+                memberAges[member] = age;
+                memberSalaries[member++] = salary;
+                min = Math.min(min, salary);
+                max = Math.max(max, salary);
+                // Unsaved employees have no id yet; count each of them once per membership.
+                if (employee.getId() == 0 || seen.add(employee.getId())) {
+                    employeeAges[employees] = age;
+                    employeeSalaries[employees++] = salary;
+                }
+            }
+        }
+        return new Data(names, offsets, memberAges, memberSalaries, Arrays.copyOf(employeeAges, employees),
+                Arrays.copyOf(employeeSalaries, employees), memberships == 0 ? 0 : min, memberships == 0 ? 0 : max);
+    }
+    public PayrollReport compute(Data data) {
+        long start = System.nanoTime();
+        double binWidth = (data.maxSalary - data.minSalary) / HISTOGRAM_BINS;
+        RangeTask departments = new RangeTask(data.memberOffsets, data.memberAges, data.memberSalaries,
+                data.minSalary, binWidth, 0, data.memberSalaries.length);
+        RangeTask enterprise = new RangeTask(new int[]{0, data.employeeSalaries.length}, data.employeeAges,
+                data.employeeSalaries, data.minSalary, binWidth, 0, data.employeeSalaries.length);
+        Cells departmentCells;
+        Cells enterpriseCells;
+        int threads;
+        if (mode == Mode.PARALLEL) {
+            ForkJoinPool pool = PoolHolder.POOL;
+            threads = pool.getParallelism();
+            departmentCells = pool.invoke(departments);
+            enterpriseCells = pool.invoke(enterprise);
+        } else {
+            threads = 1;
+            departmentCells = departments.accumulate();
+            enterpriseCells = enterprise.accumulate();
+        }
+        return new PayrollReport(mode, threads, data.departmentNames, departmentCells, enterpriseCells,
+                data.minSalary, binWidth, System.nanoTime() - start);
+    }
+    /**
+     * Computes and renders the report off the calling thread; {@code data} must already be captured.
+     */
+    public CompletableFuture<String> renderAsync(Data data) {
+        return CompletableFuture.supplyAsync(() -> compute(data).render(), PoolHolder.POOL);
+    }
+    static int ageBucket(int age) {
+        return Math.max(0, Math.min(AGE_BUCKETS.length - 1, age / 10 - 1));
+    }
+}
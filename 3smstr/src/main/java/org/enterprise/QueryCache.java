@@ -0,0 +1,252 @@
+package org.enterprise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for the results of {@link DatabaseManager#loadAllEmployees()} and
+ * {@link DatabaseManager#loadDepartmentEmployees(Department)}, published as the JMX MBean
+ * {@code org.enterprise:type=QueryCache}. Results are kept as plain rows in least-recently-used
+ * order, bounded by their total number of rows; every hit builds new {@link Employee} objects, so
+ * callers may change what they get as before.
+ * <p>
+ * Writes invalidate only the results they touch: a new employee the list of all employees, a
+ * changed or deleted employee that list and the departments containing it, a membership change its
+ * department. Every invalidation advances a generation; a result read from the database is stored
+ * only if no invalidation happened since the read started, so a slow read cannot store rows that a
+ * concurrent write made stale. Writes by other processes reach the cache through
+ * {@link ChangeTracker#readChanges(long)}.
+ */
+public class QueryCache implements QueryCacheMBean {
+    private static final Object ALL_EMPLOYEES = new Object();
+
+    private final long maxRows;
+    private final LinkedHashMap<Object, Rows> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows;
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    QueryCache(long maxRows) {
+        this.maxRows = maxRows;
+    }
+    boolean isEnabled() {
+        return maxRows > 0;
+    }
+    /**
+     * Returns the generation to pass to {@code put} for a read that starts now.
+     */
+    synchronized long generation() {
+        return generation;
+    }
+    List<Employee> getAllEmployees() {
+        return get(ALL_EMPLOYEES);
+    }
+    void putAllEmployees(long readGeneration, List<Employee> employees) {
+        put(ALL_EMPLOYEES, readGeneration, employees);
+    }
+    List<Employee> getDepartmentEmployees(int departmentId) {
+        return get(departmentId);
+    }
+    void putDepartmentEmployees(long readGeneration, int departmentId, List<Employee> employees) {
+        put(departmentId, readGeneration, employees);
+    }
+    /**
+     * Drops the list of all employees after an employee was inserted.
+     */
+    synchronized void employeesInserted() {
+        generation++;
+        remove(ALL_EMPLOYEES);
+    }
+    /**
+     * Drops the list of all employees and every department list containing one of the employees,
+     * after they were updated or deleted.
+     */
+    synchronized void employeesChanged(int... employeeIds) {
+        generation++;
+        remove(ALL_EMPLOYEES);
+        if (employeeIds.length == 0) {
+            return;
+        }
+        int[] changed = employeeIds.clone();
+        Arrays.sort(changed);
+        for (Iterator<Rows> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+            Rows rows = iterator.next();
+            if (rows.containsAny(changed)) {
+                cachedRows -= rows.size();
+                invalidations.increment();
+                iterator.remove();
+            }
+        }
+    }
+    /**
+     * Drops the member lists of the departments after their memberships or the departments changed.
+     */
+    synchronized void departmentsChanged(int... departmentIds) {
+        generation++;
+        for (int departmentId : departmentIds) {
+            remove(departmentId);
+        }
+    }
+    @Override
+    public synchronized void clear() {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+        cachedRows = 0;
+    }
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+    @Override
+    public double getHitRatio() {
+        long found = hits.sum();
+        long total = found + misses.sum();
+        return total == 0 ? 0 : (double) found / total;
+    }
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+    @Override
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+    @Override
+    public synchronized long getCachedRows() {
+        return cachedRows;
+    }
+    @Override
+    public long getMaxRows() {
+        return maxRows;
+    }
+    @Override
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        invalidations.reset();
+    }
+    @Override
+    public String toString() {
+        return String.format("queryCache hits=%d misses=%d hitRatio=%.3f evictions=%d invalidations=%d entries=%d rows=%d/%d",
+                getHits(), getMisses(), getHitRatio(), getEvictions(), getInvalidations(), getEntries(),
+                getCachedRows(), maxRows);
+    }
+    private List<Employee> get(Object key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Rows rows;
+        synchronized (this) {
+            rows = entries.get(key);
+        }
+        if (rows == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return rows.toEmployees();
+    }
+    private void put(Object key, long readGeneration, List<Employee> employees) {
+        if (!isEnabled() || employees.size() > maxRows) {
+            return;
+        }
+        Rows rows = new Rows(employees, key != ALL_EMPLOYEES);
+        synchronized (this) {
+            if (readGeneration != generation) {
+                return;
+            }
+            Rows previous = entries.put(key, rows);
+            if (previous != null) {
+                cachedRows -= previous.size();
+            }
+            cachedRows += rows.size();
+            for (Iterator<Rows> iterator = entries.values().iterator(); cachedRows > maxRows; ) {
+                cachedRows -= iterator.next().size();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+    private void remove(Object key) {
+        Rows rows = entries.remove(key);
+        if (rows != null) {
+            cachedRows -= rows.size();
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * One cached result as columns; department results also keep their ids sorted for invalidation.
+     */
+    private static class Rows {
+        private final int[] ids;
+        private final String[] fullNames;
+        private final int[] ages;
+        private final double[] salaries;
+        private final int[] sortedIds;
+
+        Rows(List<Employee> employees, boolean sorted) {
+            int size = employees.size();
+            ids = new int[size];
+            fullNames = new String[size];
+            ages = new int[size];
+            salaries = new double[size];
+            for (int i = 0; i < size; i++) {
+                Employee employee = employees.get(i);
+                ids[i] = employee.getId();
+                fullNames[i] = employee.getFullName();
+                ages[i] = employee.getAge();
+                salaries[i] = employee.getSalary();
+            }
+            if (sorted) {
+                sortedIds = ids.clone();
+                Arrays.sort(sortedIds);
+            } else {
+                sortedIds = null;
+            }
+        }
+        int size() {
+            return ids.length;
+        }
+        boolean containsAny(int[] changed) {
+            // The list of all employees contains every employee and is dropped by the caller already.
+            if (sortedIds == null) {
+                return true;
+            }
+            int[] small = changed.length <= sortedIds.length ? changed : sortedIds;
+            int[] large = small == changed ? sortedIds : changed;
+            for (int id : small) {
+                if (Arrays.binarySearch(large, id) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        List<Employee> toEmployees() {
+            List<Employee> employees = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                Employee employee = new Employee(fullNames[i], ages[i], salaries[i]);
+                employee.setId(ids[i]);
+                employees.add(employee);
+            }
+            return employees;
+        }
+    }
+}
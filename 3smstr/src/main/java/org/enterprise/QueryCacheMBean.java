@@ -0,0 +1,14 @@
+package org.enterprise;
+
+public interface QueryCacheMBean {
+    long getHits();
+    long getMisses();
+    double getHitRatio();
+    long getEvictions();
+    long getInvalidations();
+    int getEntries();
+    long getCachedRows();
+    long getMaxRows();
+    void clear();
+    void resetStatistics();
+}
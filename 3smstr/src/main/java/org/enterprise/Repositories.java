@@ -0,0 +1,52 @@
+package org.enterprise;
+
+/**
+ * Holds the {@link EnterpriseRepository} the application runs against. Unless one is installed with
+ * {@link #use(EnterpriseRepository)}, the first call to {@link #get()} picks it from
+ * {@code -Denterprise.storage}: {@code sqlite} (the default) or {@code memory}. With
+ * {@code -Denterprise.storage.preload=true} the in-memory backend starts as a copy of the SQLite
+ * database, which is read once and never written afterwards.
+ */
+public final class Repositories {
+    private static volatile EnterpriseRepository current;
+
+    private Repositories() {
+    }
+    public static EnterpriseRepository get() {
+        EnterpriseRepository repository = current;
+        if (repository == null) {
+            synchronized (Repositories.class) {
+                if (current == null) {
+                    current = create(System.getProperty("enterprise.storage", "sqlite"));
+                }
+                repository = current;
+            }
+        }
+        return repository;
+    }
+    public static synchronized void use(EnterpriseRepository repository) {
+        current = repository;
+    }
+    /**
+     * Creates a backend by name, as accepted by {@code -Denterprise.storage}.
+     */
+    public static EnterpriseRepository create(String storage) {
+        switch (storage) {
+            case "sqlite":
+                return new SqliteRepository();
+            case "memory":
+                if (!Boolean.getBoolean("enterprise.storage.preload")) {
+                    return new InMemoryRepository();
+                }
+                SqliteRepository database = new SqliteRepository();
+                database.initialize();
+                try {
+                    return InMemoryRepository.copyOf(database);
+                } finally {
+                    database.close();
+                }
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.enterprise;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Running salary aggregates for a group of employees, updated in O(1) on every add, remove and
+ * salary change. The sum is exact: whole cents are accumulated in a {@code long} and any finer
+ * remainder in a {@link BigDecimal}, so it never drifts from the values shown to the user.
+ * Percentiles come from a log-bucketed sketch with about 1% relative error. Min and max are exact;
+ * when the current extreme is removed they are recomputed from {@code source} on next read.
+ * Safe for concurrent use: readers of the running totals do not block each other, and the
+ * recomputation iterates {@code source} without holding the lock.
+ */
+public class SalaryStatistics {
+    private static final double GAMMA = 1.0202;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final Supplier<? extends Iterable<Employee>> source;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private long count;
+    private long sumCents;
+    private BigDecimal sumRemainder = BigDecimal.ZERO;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private boolean extremesStale;
+    private boolean refreshing;
+    private double addedMin;
+    private double addedMax;
+    private double removedMin;
+    private double removedMax;
+    private long belowOneCount;
+    private long[] buckets = new long[64];
+
+    public SalaryStatistics(Supplier<? extends Iterable<Employee>> source) {
+        this.source = source;
+    }
+    public void add(double salary) {
+        long stamp = lock.writeLock();
+        try {
+            addLocked(salary);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    public void remove(double salary) {
+        long stamp = lock.writeLock();
+        try {
+            removeLocked(salary);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    public void replace(double oldSalary, double newSalary) {
+        long stamp = lock.writeLock();
+        try {
+            removeLocked(oldSalary);
+            addLocked(newSalary);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            count = 0;
+            sumCents = 0;
+            sumRemainder = BigDecimal.ZERO;
+            min = Double.NaN;
+            max = Double.NaN;
+            extremesStale = false;
+            belowOneCount = 0;
+            Arrays.fill(buckets, 0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    public long getCount() {
+        long stamp = lock.tryOptimisticRead();
+        long result = count;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = count;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+    public BigDecimal getSum() {
+        long stamp = lock.tryOptimisticRead();
+        long cents = sumCents;
+        BigDecimal remainder = sumRemainder;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                cents = sumCents;
+                remainder = sumRemainder;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return BigDecimal.valueOf(cents, 2).add(remainder);
+    }
+    public double getMean() {
+        long stamp = lock.readLock();
+        try {
+            return count == 0 ? 0 : BigDecimal.valueOf(sumCents, 2).add(sumRemainder).doubleValue() / count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    public double getMin() {
+        return getExtreme(true);
+    }
+    public double getMax() {
+        return getExtreme(false);
+    }
+    public double getMedian() {
+        return getPercentile(50);
+    }
+    public double getPercentile(double percentile) {
+        double estimate = Double.POSITIVE_INFINITY;
+        boolean belowOne = false;
+        long stamp = lock.readLock();
+        try {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            rank = Math.max(1, Math.min(count, rank));
+            long seen = belowOneCount;
+            if (seen >= rank) {
+                belowOne = true;
+            } else {
+                for (int i = 0; i < buckets.length; i++) {
+                    seen += buckets[i];
+                    if (seen >= rank) {
+                        estimate = 2 * Math.pow(GAMMA, i) / (GAMMA + 1);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (belowOne) {
+            return Math.max(0, getMin());
+        }
+        return estimate == Double.POSITIVE_INFINITY ? getMax() : Math.min(getMax(), Math.max(getMin(), estimate));
+    }
+    @Override
+    public String toString() {
+        return "сотрудников: " + getCount() + ", сумма: " + getSum().toPlainString() +
+                String.format(", среднее: %.2f, мин: %.2f, макс: %.2f, медиана: ~%.2f, p90: ~%.2f",
+                        getMean(), getMin(), getMax(), getMedian(), getPercentile(90));
+    }
+    private void addLocked(double salary) {
+        count++;
+        addToSum(salary, 1);
+        if (refreshing) {
+            addedMin = Math.min(addedMin, salary);
+            addedMax = Math.max(addedMax, salary);
+        }
+        if (!extremesStale) {
+            if (count == 1 || salary < min) {
+                min = salary;
+            }
+            if (count == 1 || salary > max) {
+                max = salary;
+            }
+        }
+        addToSketch(salary, 1);
+    }
+    private void removeLocked(double salary) {
+        count--;
+        addToSum(salary, -1);
+        if (refreshing) {
+            removedMin = Math.min(removedMin, salary);
+            removedMax = Math.max(removedMax, salary);
+        }
+        if (count == 0) {
+            min = Double.NaN;
+            max = Double.NaN;
+            extremesStale = false;
+        } else if (salary <= min || salary >= max) {
+            extremesStale = true;
+        }
+        addToSketch(salary, -1);
+    }
+    private void addToSum(double salary, int sign) {
+        double cents = Math.rint(salary * 100);
+        if (Math.abs(cents) < 1e15 && cents / 100 == salary) {
+            sumCents += sign * (long) cents;
+        } else {
+            BigDecimal value = BigDecimal.valueOf(salary);
+            sumRemainder = sign > 0 ? sumRemainder.add(value) : sumRemainder.subtract(value);
+        }
+    }
+    private void addToSketch(double salary, int delta) {
+        if (salary < 1) {
+            belowOneCount += delta;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(salary) / LOG_GAMMA);
+        if (index >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(index + 1, buckets.length * 2));
+        }
+        buckets[index] += delta;
+    }
+    private double getExtreme(boolean minimum) {
+        while (true) {
+            refreshExtremes();
+            long stamp = lock.readLock();
+            try {
+                if (!extremesStale) {
+                    return count == 0 ? 0 : minimum ? min : max;
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+    private void refreshExtremes() {
+        long stamp = lock.readLock();
+        try {
+            if (!extremesStale) {
+                return;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        refreshLock.lock();
+        try {
+            while (true) {
+                stamp = lock.writeLock();
+                try {
+                    if (!extremesStale) {
+                        return;
+                    }
+                    refreshing = true;
+                    addedMin = removedMin = Double.POSITIVE_INFINITY;
+                    addedMax = removedMax = Double.NEGATIVE_INFINITY;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+                // Iterated without the lock: the source may take its owner's lock, which is held while adding.
+                double newMin = Double.POSITIVE_INFINITY;
+                double newMax = Double.NEGATIVE_INFINITY;
+                for (Employee employee : source.get()) {
+                    double salary = employee.getSalary();
+                    newMin = Math.min(newMin, salary);
+                    newMax = Math.max(newMax, salary);
+                }
+                stamp = lock.writeLock();
+                try {
+                    refreshing = false;
+                    if (!extremesStale) {
+                        return;
+                    }
+                    newMin = Math.min(newMin, addedMin);
+                    newMax = Math.max(newMax, addedMax);
+                    // Salaries added meanwhile are folded in; one removed meanwhile may have been the extreme found.
+                    if (removedMin > newMin && removedMax < newMax) {
+                        min = newMin;
+                        max = newMax;
+                        extremesStale = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
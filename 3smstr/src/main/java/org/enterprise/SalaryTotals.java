@@ -0,0 +1,38 @@
+package org.enterprise;
+
+/**
+ * Salary aggregates computed by the database for a group of employees.
+ */
+public class SalaryTotals {
+    private final long employees;
+    private final double total;
+    private final double min;
+    private final double max;
+
+    public SalaryTotals(long employees, double total, double min, double max) {
+        this.employees = employees;
+        this.total = total;
+        this.min = min;
+        this.max = max;
+    }
+    public long getEmployees() {
+        return employees;
+    }
+    public double getTotal() {
+        return total;
+    }
+    public double getMin() {
+        return min;
+    }
+    public double getMax() {
+        return max;
+    }
+    public double getMean() {
+        return employees == 0 ? 0 : total / employees;
+    }
+    @Override
+    public String toString() {
+        return String.format("сотрудников: %d, сумма: %.2f, среднее: %.2f, мин: %.2f, макс: %.2f",
+                employees, total, getMean(), min, max);
+    }
+}
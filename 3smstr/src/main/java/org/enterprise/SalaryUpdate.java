@@ -0,0 +1,55 @@
+package org.enterprise;
+
+import java.util.Arrays;
+
+/**
+ * Salaries written by a bulk payroll operation, as stored, so the model can be brought in line
+ * without reading the rows again.
+ */
+public class SalaryUpdate {
+    private int[] employeeIds = new int[16];
+    private double[] salaries = new double[16];
+    private int size;
+
+    void add(int employeeId, double salary) {
+        if (size == employeeIds.length) {
+            employeeIds = Arrays.copyOf(employeeIds, size * 2);
+            salaries = Arrays.copyOf(salaries, size * 2);
+        }
+        employeeIds[size] = employeeId;
+        salaries[size] = salary;
+        size++;
+    }
+    public int size() {
+        return size;
+    }
+    public int getEmployeeId(int index) {
+        return employeeIds[index];
+    }
+    public double getSalary(int index) {
+        return salaries[index];
+    }
+    int[] getEmployeeIds() {
+        return Arrays.copyOf(employeeIds, size);
+    }
+    /**
+     * Sets the new salaries on the employees of {@code enterprise}, which updates the department and
+     * enterprise aggregates; a salary with an unsaved local edit is left alone. Must run on the
+     * thread that edits the model. Returns the number of employees found in the model.
+     */
+    public int applyTo(Enterprise enterprise) {
+        int applied = 0;
+        for (int i = 0; i < size; i++) {
+            Employee employee = enterprise.findEmployeeById(employeeIds[i]);
+            if (employee != null) {
+                employee.applyStoredValues(employee.getFullName(), employee.getAge(), salaries[i]);
+                applied++;
+            }
+        }
+        return applied;
+    }
+    @Override
+    public String toString() {
+        return "Изменено зарплат: " + size;
+    }
+}
@@ -0,0 +1,192 @@
+package org.enterprise;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Upgrades the database schema in place. The current version is kept in {@code PRAGMA user_version};
+ * every migration above it runs in its own transaction, so an interrupted upgrade resumes from the
+ * last completed step. New migrations are appended to {@link #MIGRATIONS} and must never be edited
+ * once released.
+ */
+public class SchemaMigrator {
+    static class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+        int getVersion() {
+            return version;
+        }
+        String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Indexes the names of all employees; run once when the full-text index is created, or after
+     * rows were written with its insert trigger dropped.
+     */
+    static final String FILL_NAME_INDEX = "INSERT INTO employees_fts (rowid, full_name) " +
+            "SELECT id, replace(replace(full_name, 'ё', 'е'), 'Ё', 'Е') FROM employees";
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "base tables",
+                    "CREATE TABLE IF NOT EXISTS employees (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "full_name TEXT," +
+                            "age INTEGER," +
+                            "salary REAL)",
+                    "CREATE TABLE IF NOT EXISTS departments (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "name TEXT)",
+                    "CREATE TABLE IF NOT EXISTS employee_department (" +
+                            "employee_id INTEGER," +
+                            "department_id INTEGER," +
+                            "FOREIGN KEY (employee_id) REFERENCES employees (id) ON DELETE CASCADE," +
+                            "FOREIGN KEY (department_id) REFERENCES departments (id) ON DELETE CASCADE)"),
+            new Migration(2, "primary key on employee_department",
+                    "CREATE TABLE employee_department_new (" +
+                            "employee_id INTEGER NOT NULL," +
+                            "department_id INTEGER NOT NULL," +
+                            "PRIMARY KEY (employee_id, department_id)," +
+                            "FOREIGN KEY (employee_id) REFERENCES employees (id) ON DELETE CASCADE," +
+                            "FOREIGN KEY (department_id) REFERENCES departments (id) ON DELETE CASCADE" +
+                            ") WITHOUT ROWID",
+                    "INSERT OR IGNORE INTO employee_department_new (employee_id, department_id) " +
+                            "SELECT employee_id, department_id FROM employee_department " +
+                            "WHERE employee_id IN (SELECT id FROM employees) " +
+                            "AND department_id IN (SELECT id FROM departments)",
+                    "DROP TABLE employee_department",
+                    "ALTER TABLE employee_department_new RENAME TO employee_department"),
+            new Migration(3, "index on employee_department.department_id",
+                    "CREATE INDEX IF NOT EXISTS idx_employee_department_department_id " +
+                            "ON employee_department (department_id)"),
+            new Migration(4, "index on employees.full_name",
+                    "CREATE INDEX IF NOT EXISTS idx_employees_full_name ON employees (full_name)"),
+            new Migration(5, "indexes for sorting employees by age and salary",
+                    "CREATE INDEX IF NOT EXISTS idx_employees_age ON employees (age)",
+                    "CREATE INDEX IF NOT EXISTS idx_employees_salary ON employees (salary)"),
+            // Contentless: the index stores only tokens, with "ё" folded to "е" so both spellings match.
+            // Prefix indexes for one to four characters keep type-ahead queries from merging huge doclists.
+            new Migration(6, "full-text index on employees.full_name",
+                    "CREATE VIRTUAL TABLE employees_fts USING fts5(full_name, content='', contentless_delete=1, " +
+                            "tokenize='unicode61 remove_diacritics 2', prefix='1 2 3 4')",
+                    FILL_NAME_INDEX,
+                    "CREATE TRIGGER employees_fts_insert AFTER INSERT ON employees BEGIN " +
+                            "INSERT INTO employees_fts (rowid, full_name) VALUES (new.id, replace(replace(new.full_name, 'ё', 'е'), 'Ё', 'Е')); END",
+                    "CREATE TRIGGER employees_fts_delete AFTER DELETE ON employees BEGIN " +
+                            "DELETE FROM employees_fts WHERE rowid = old.id; END",
+                    "CREATE TRIGGER employees_fts_update AFTER UPDATE OF full_name ON employees BEGIN " +
+                            "DELETE FROM employees_fts WHERE rowid = old.id; " +
+                            "INSERT INTO employees_fts (rowid, full_name) VALUES (new.id, replace(replace(new.full_name, 'ё', 'е'), 'Ё', 'Е')); END"),
+            // Only ids are logged; readers fetch the current rows. Kinds: 1 employee, 2 department, 3 membership.
+            // Inserted employees are not logged, they only become visible through a membership.
+            new Migration(7, "change log for refreshing other processes",
+                    "CREATE TABLE change_log (" +
+                            "seq INTEGER PRIMARY KEY AUTOINCREMENT," +
+                            "kind INTEGER NOT NULL," +
+                            "entity_id INTEGER NOT NULL," +
+                            "department_id INTEGER)",
+                    "CREATE TRIGGER change_log_employee_update AFTER UPDATE OF full_name, age, salary ON employees " +
+                            "WHEN old.full_name IS NOT new.full_name OR old.age IS NOT new.age OR old.salary IS NOT new.salary BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id) VALUES (1, new.id); END",
+                    "CREATE TRIGGER change_log_employee_delete AFTER DELETE ON employees BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id) VALUES (1, old.id); END",
+                    "CREATE TRIGGER change_log_department_insert AFTER INSERT ON departments BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id) VALUES (2, new.id); END",
+                    "CREATE TRIGGER change_log_department_update AFTER UPDATE OF name ON departments " +
+                            "WHEN old.name IS NOT new.name BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id) VALUES (2, new.id); END",
+                    "CREATE TRIGGER change_log_department_delete AFTER DELETE ON departments BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id) VALUES (2, old.id); END",
+                    "CREATE TRIGGER change_log_membership_insert AFTER INSERT ON employee_department BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id, department_id) VALUES (3, new.employee_id, new.department_id); END",
+                    "CREATE TRIGGER change_log_membership_delete AFTER DELETE ON employee_department BEGIN " +
+                            "INSERT INTO change_log (kind, entity_id, department_id) VALUES (3, old.employee_id, old.department_id); END"),
+            // Every trigger replaces the entry of its entity, so the log holds one row per changed employee or department
+            // and a bulk write logs one row per department. Kind 4 replaces kind 3: the members of a department changed.
+            // Coalescing leaves gaps in seq, so how far the log was pruned is kept in change_log_pruned.
+            new Migration(8, "change log coalesced per employee and department",
+                    "CREATE TABLE change_log_pruned (seq INTEGER NOT NULL)",
+                    "INSERT INTO change_log_pruned (seq) SELECT coalesce(min(seq) - 1, 0) FROM change_log",
+                    "INSERT INTO change_log (kind, entity_id) SELECT DISTINCT 4, department_id FROM change_log WHERE kind = 3",
+                    "DELETE FROM change_log WHERE kind = 3",
+                    "DELETE FROM change_log WHERE seq NOT IN (SELECT max(seq) FROM change_log GROUP BY kind, entity_id)",
+                    "CREATE INDEX idx_change_log_entity ON change_log (kind, entity_id)",
+                    "DROP TRIGGER change_log_employee_update",
+                    "DROP TRIGGER change_log_employee_delete",
+                    "DROP TRIGGER change_log_department_insert",
+                    "DROP TRIGGER change_log_department_update",
+                    "DROP TRIGGER change_log_department_delete",
+                    "DROP TRIGGER change_log_membership_insert",
+                    "DROP TRIGGER change_log_membership_delete",
+                    "CREATE TRIGGER change_log_employee_update AFTER UPDATE OF full_name, age, salary ON employees " +
+                            "WHEN old.full_name IS NOT new.full_name OR old.age IS NOT new.age OR old.salary IS NOT new.salary BEGIN " +
+                            logChange(1, "new.id") + " END",
+                    "CREATE TRIGGER change_log_employee_delete AFTER DELETE ON employees BEGIN " + logChange(1, "old.id") + " END",
+                    "CREATE TRIGGER change_log_department_insert AFTER INSERT ON departments BEGIN " + logChange(2, "new.id") + " END",
+                    "CREATE TRIGGER change_log_department_update AFTER UPDATE OF name ON departments " +
+                            "WHEN old.name IS NOT new.name BEGIN " + logChange(2, "new.id") + " END",
+                    "CREATE TRIGGER change_log_department_delete AFTER DELETE ON departments BEGIN " + logChange(2, "old.id") + " END",
+                    "CREATE TRIGGER change_log_membership_insert AFTER INSERT ON employee_department BEGIN " +
+                            logChange(4, "new.department_id") + " END",
+                    "CREATE TRIGGER change_log_membership_delete AFTER DELETE ON employee_department BEGIN " +
+                            logChange(4, "old.department_id") + " END")
+    );
+
+    /**
+     * Trigger body that moves the entry of an entity to the end of the change log. A delete and an
+     * insert rather than {@code INSERT OR REPLACE}, which an outer {@code INSERT OR IGNORE} would turn
+     * into an ignore.
+     */
+    private static String logChange(int kind, String entityId) {
+        return "DELETE FROM change_log WHERE kind = " + kind + " AND entity_id = " + entityId + "; " +
+                "INSERT INTO change_log (kind, entity_id) VALUES (" + kind + ", " + entityId + ");";
+    }
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+    public static void migrate(Connection connection) throws SQLException {
+        for (Migration migration : MIGRATIONS) {
+            apply(connection, migration);
+        }
+    }
+    static int currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        if (currentVersion(connection) >= migration.getVersion()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            // Take the write lock before re-reading the version so concurrent processes migrate once.
+            statement.execute("BEGIN IMMEDIATE");
+            try {
+                if (currentVersion(connection) < migration.getVersion()) {
+                    for (String sql : migration.statements) {
+                        statement.execute(sql);
+                    }
+                    statement.execute("PRAGMA user_version = " + migration.getVersion());
+                    System.out.println("Schema migrated to version " + migration.getVersion() +
+                            ": " + migration.getDescription());
+                }
+                statement.execute("COMMIT");
+            } catch (SQLException e) {
+                statement.execute("ROLLBACK");
+                throw new SQLException("Schema migration " + migration.getVersion() + " failed: " + e.getMessage(), e);
+            }
+        }
+    }
+}
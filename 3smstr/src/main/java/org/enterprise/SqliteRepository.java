@@ -0,0 +1,164 @@
+package org.enterprise;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The SQLite backend. Every call goes to {@link DatabaseManager}, {@link EnterpriseLoader},
+ * {@link ChangeTracker} or {@link CsvImporter}, which own the SQL.
+ */
+public class SqliteRepository implements EnterpriseRepository {
+    @Override
+    public void initialize() {
+        DatabaseManager.createTables();
+    }
+    @Override
+    public void close() {
+        DatabaseManager.shutdown();
+    }
+    @Override
+    public int saveEmployee(Employee employee) {
+        return DatabaseManager.saveEmployee(employee);
+    }
+    @Override
+    public Employee loadEmployee(int employeeId) {
+        return DatabaseManager.loadEmployee(employeeId);
+    }
+    @Override
+    public List<Employee> loadAllEmployees() {
+        return DatabaseManager.loadAllEmployees();
+    }
+    @Override
+    public List<Employee> searchEmployees(String text, int limit) {
+        return DatabaseManager.searchEmployees(text, limit);
+    }
+    @Override
+    public int countEmployees() {
+        return DatabaseManager.countEmployees();
+    }
+    @Override
+    public List<Employee> loadEmployeesPage(EmployeeSortKey sortKey, boolean ascending, Object afterValue, int afterId, int limit) {
+        return DatabaseManager.loadEmployeesPage(sortKey, ascending, afterValue, afterId, limit);
+    }
+    @Override
+    public List<Employee> loadEmployeesPageAt(EmployeeSortKey sortKey, boolean ascending, int offset, int limit) {
+        return DatabaseManager.loadEmployeesPageAt(sortKey, ascending, offset, limit);
+    }
+    @Override
+    public void scanEmployees(EmployeeRowHandler handler) {
+        DatabaseManager.scanEmployees(handler);
+    }
+    @Override
+    public void updateEmployee(Employee employee) {
+        DatabaseManager.updateEmployee(employee);
+    }
+    @Override
+    public void removeEmployee(Employee employee) {
+        DatabaseManager.removeEmployee(employee);
+    }
+    @Override
+    public int saveDepartment(Department department) {
+        return DatabaseManager.saveDepartment(department);
+    }
+    @Override
+    public List<Department> loadAllDepartments() {
+        return DatabaseManager.loadAllDepartments();
+    }
+    @Override
+    public boolean departmentExists(int departmentId) {
+        return DatabaseManager.departmentExists(departmentId);
+    }
+    @Override
+    public void updateDepartment(Department department) {
+        DatabaseManager.updateDepartment(department);
+    }
+    @Override
+    public void removeDepartment(Department department) {
+        DatabaseManager.removeDepartment(department);
+    }
+    @Override
+    public List<DepartmentSummary> loadDepartmentSummaries() {
+        return DatabaseManager.loadDepartmentSummaries();
+    }
+    @Override
+    public DepartmentSummary loadDepartmentSummary(int departmentId) {
+        return DatabaseManager.loadDepartmentSummary(departmentId);
+    }
+    @Override
+    public SalaryTotals loadSalaryTotals() {
+        return DatabaseManager.loadSalaryTotals();
+    }
+    @Override
+    public void saveEmployeeDepartment(int employeeId, int departmentId) {
+        DatabaseManager.saveEmployeeDepartment(employeeId, departmentId);
+    }
+    @Override
+    public boolean saveDepartmentMembers(Department department, List<Employee> employees) {
+        return DatabaseManager.saveDepartmentMembers(department, employees);
+    }
+    @Override
+    public List<Employee> loadDepartmentEmployees(Department department) {
+        return DatabaseManager.loadDepartmentEmployees(department);
+    }
+    @Override
+    public void deleteEmployeeDepartmentsForDepartment(int departmentId) {
+        DatabaseManager.deleteEmployeeDepartmentsForDepartment(departmentId);
+    }
+    @Override
+    public void scanDepartmentEmployeeIds(int departmentId, IntConsumer consumer) {
+        DatabaseManager.scanDepartmentEmployeeIds(departmentId, consumer);
+    }
+    @Override
+    public void scanDepartmentEmployees(int departmentId, EmployeeRowHandler handler) {
+        DatabaseManager.scanDepartmentEmployees(departmentId, handler);
+    }
+    @Override
+    public void scanEmployeeDepartmentIds(int employeeId, IntConsumer consumer) {
+        DatabaseManager.scanEmployeeDepartmentIds(employeeId, consumer);
+    }
+    @Override
+    public void scanMemberships(MembershipRowHandler handler) {
+        DatabaseManager.scanMemberships(handler);
+    }
+    @Override
+    public SalaryUpdate raiseSalaries(int departmentId, double percent, double amount) {
+        return DatabaseManager.raiseSalaries(departmentId, percent, amount);
+    }
+    @Override
+    public SalaryUpdate clampSalaries(int minAge, int maxAge, double floor, double cap) {
+        return DatabaseManager.clampSalaries(minAge, maxAge, floor, cap);
+    }
+    @Override
+    public boolean moveDepartmentMembers(int fromDepartmentId, int toDepartmentId) {
+        return DatabaseManager.moveDepartmentMembers(fromDepartmentId, toDepartmentId);
+    }
+    @Override
+    public boolean applyChanges(UnitOfWork.ChangeSet changes) {
+        return DatabaseManager.applyChanges(changes);
+    }
+    /**
+     * Starts from the {@link EnterpriseSnapshot} when there is a usable one and runs the full
+     * {@link EnterpriseLoader} query otherwise.
+     */
+    @Override
+    public EnterpriseLoader.Result loadEnterprise(Enterprise enterprise) throws SQLException {
+        Path snapshot = EnterpriseSnapshot.defaultFile();
+        if (snapshot != null) {
+            EnterpriseLoader.Result result = EnterpriseSnapshot.load(enterprise, snapshot);
+            if (result != null) {
+                return result;
+            }
+        }
+        return EnterpriseLoader.load(enterprise);
+    }
+    @Override
+    public ChangeTracker.Delta readChanges(long afterSequence) throws SQLException {
+        return ChangeTracker.readChanges(afterSequence);
+    }
+    @Override
+    public CsvImporter.Target openImport() throws SQLException {
+        return CsvImporter.openDatabaseTarget();
+    }
+}
@@ -0,0 +1,225 @@
+package org.enterprise;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects edits to the domain model and writes them in one batched transaction. The entities
+ * track what changed themselves ({@link Employee#getDirtyFields()}, {@link Department#isDirty()});
+ * the unit of work only remembers which entities to look at, so repeated edits of the same
+ * employee or department coalesce into a single row write and moving an employee between
+ * departments costs one membership DELETE and one INSERT.
+ * <p>
+ * A unit of work belongs to the thread that edits the model. {@link #takeChanges()} detaches the
+ * pending edits as a {@link ChangeSet} that may be written on any thread; if writing it fails, hand
+ * it back with {@link #restore(ChangeSet)} so the edits are retried with the next flush.
+ */
+public class UnitOfWork {
+    public static class ChangeSet {
+        final List<DepartmentChange> newDepartments = new ArrayList<>();
+        final List<EmployeeChange> newEmployees = new ArrayList<>();
+        final List<EmployeeChange> updatedEmployees = new ArrayList<>();
+        final List<DepartmentChange> renamedDepartments = new ArrayList<>();
+        final List<MembershipChange> removedMemberships = new ArrayList<>();
+        final List<MembershipChange> addedMemberships = new ArrayList<>();
+        final List<Employee> removedEmployees = new ArrayList<>();
+        final List<Department> removedDepartments = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+        public int size() {
+            return newDepartments.size() + newEmployees.size() + updatedEmployees.size() + renamedDepartments.size() +
+                    removedMemberships.size() + addedMemberships.size() + removedEmployees.size() + removedDepartments.size();
+        }
+        @Override
+        public String toString() {
+            return "новых отделов: " + newDepartments.size() + ", новых сотрудников: " + newEmployees.size() +
+                    ", изменено сотрудников: " + updatedEmployees.size() + ", переименовано отделов: " + renamedDepartments.size() +
+                    ", связей удалено/добавлено: " + removedMemberships.size() + "/" + addedMemberships.size() +
+                    ", удалено сотрудников: " + removedEmployees.size() + ", удалено отделов: " + removedDepartments.size();
+        }
+    }
+
+    static class EmployeeChange {
+        final Employee employee;
+        final int fields;
+        final String fullName;
+        final int age;
+        final double salary;
+
+        EmployeeChange(Employee employee, int fields) {
+            this.employee = employee;
+            this.fields = fields;
+            this.fullName = employee.getFullName();
+            this.age = employee.getAge();
+            this.salary = employee.getSalary();
+        }
+    }
+
+    static class DepartmentChange {
+        final Department department;
+        final String name;
+
+        DepartmentChange(Department department) {
+            this.department = department;
+            this.name = department.getName();
+        }
+    }
+
+    static class MembershipChange {
+        final Employee employee;
+        final Department department;
+
+        MembershipChange(Employee employee, Department department) {
+            this.employee = employee;
+            this.department = department;
+        }
+    }
+
+    private static final int ALL_FIELDS = Employee.FULL_NAME | Employee.AGE | Employee.SALARY;
+
+    private final Set<Employee> newEmployees = new LinkedHashSet<>();
+    private final Set<Employee> dirtyEmployees = new LinkedHashSet<>();
+    private final Set<Employee> removedEmployees = new LinkedHashSet<>();
+    private final Set<Department> newDepartments = new LinkedHashSet<>();
+    private final Set<Department> dirtyDepartments = new LinkedHashSet<>();
+    private final Set<Department> removedDepartments = new LinkedHashSet<>();
+
+    public void registerNew(Employee employee) {
+        removedEmployees.remove(employee);
+        newEmployees.add(employee);
+    }
+    public void registerDirty(Employee employee) {
+        if (!newEmployees.contains(employee) && !removedEmployees.contains(employee)) {
+            dirtyEmployees.add(employee);
+        }
+    }
+    public void registerRemoved(Employee employee) {
+        dirtyEmployees.remove(employee);
+        employee.markClean();
+        if (!newEmployees.remove(employee)) {
+            removedEmployees.add(employee);
+        }
+    }
+    public void registerNew(Department department) {
+        removedDepartments.remove(department);
+        newDepartments.add(department);
+    }
+    public void registerDirty(Department department) {
+        if (!removedDepartments.contains(department)) {
+            dirtyDepartments.add(department);
+        }
+    }
+    public void registerRemoved(Department department) {
+        dirtyDepartments.remove(department);
+        department.markClean();
+        if (!newDepartments.remove(department)) {
+            removedDepartments.add(department);
+        }
+    }
+    public boolean hasChanges() {
+        return !newEmployees.isEmpty() || !dirtyEmployees.isEmpty() || !removedEmployees.isEmpty()
+                || !newDepartments.isEmpty() || !dirtyDepartments.isEmpty() || !removedDepartments.isEmpty();
+    }
+    /**
+     * Detaches everything registered so far, marks the entities clean and returns the detached
+     * edits with the field values they have now.
+     */
+    public ChangeSet takeChanges() {
+        ChangeSet changes = new ChangeSet();
+        for (Department department : newDepartments) {
+            changes.newDepartments.add(new DepartmentChange(department));
+        }
+        for (Employee employee : newEmployees) {
+            changes.newEmployees.add(new EmployeeChange(employee, ALL_FIELDS));
+            employee.markClean();
+        }
+        for (Employee employee : dirtyEmployees) {
+            if (employee.isDirty()) {
+                changes.updatedEmployees.add(new EmployeeChange(employee, employee.getDirtyFields()));
+                employee.markClean();
+            }
+        }
+        dirtyDepartments.addAll(newDepartments);
+        for (Department department : dirtyDepartments) {
+            if (department.isNameDirty() && !newDepartments.contains(department)) {
+                changes.renamedDepartments.add(new DepartmentChange(department));
+            }
+            for (Employee employee : department.getRemovedEmployees()) {
+                changes.removedMemberships.add(new MembershipChange(employee, department));
+            }
+            for (Employee employee : department.getAddedEmployees()) {
+                changes.addedMemberships.add(new MembershipChange(employee, department));
+            }
+            department.markClean();
+        }
+        changes.removedEmployees.addAll(removedEmployees);
+        changes.removedDepartments.addAll(removedDepartments);
+
+        newEmployees.clear();
+        dirtyEmployees.clear();
+        removedEmployees.clear();
+        newDepartments.clear();
+        dirtyDepartments.clear();
+        removedDepartments.clear();
+        return changes;
+    }
+    /**
+     * Re-registers the edits of a change set that could not be written. Membership changes are
+     * replayed through the departments, so an edit made since then that undoes one of them cancels
+     * it instead of being overwritten.
+     */
+    public void restore(ChangeSet changes) {
+        for (Department department : changes.removedDepartments) {
+            registerRemoved(department);
+        }
+        for (Employee employee : changes.removedEmployees) {
+            registerRemoved(employee);
+        }
+        for (DepartmentChange change : changes.newDepartments) {
+            if (!removedDepartments.contains(change.department)) {
+                newDepartments.add(change.department);
+            }
+        }
+        for (DepartmentChange change : changes.renamedDepartments) {
+            change.department.markNameDirty();
+            registerDirty(change.department);
+        }
+        for (EmployeeChange change : changes.newEmployees) {
+            if (!removedEmployees.contains(change.employee)) {
+                newEmployees.add(change.employee);
+                dirtyEmployees.remove(change.employee);
+            }
+        }
+        for (EmployeeChange change : changes.updatedEmployees) {
+            change.employee.markDirty(change.fields);
+            registerDirty(change.employee);
+        }
+        for (MembershipChange change : changes.removedMemberships) {
+            change.department.recordRemoved(change.employee);
+            registerDirty(change.department);
+        }
+        for (MembershipChange change : changes.addedMemberships) {
+            change.department.recordAdded(change.employee);
+            registerDirty(change.department);
+        }
+    }
+    /**
+     * Writes all pending edits on the calling thread. Returns false and keeps the edits pending if
+     * the transaction failed.
+     */
+    public boolean flush() {
+        ChangeSet changes = takeChanges();
+        if (changes.isEmpty()) {
+            return true;
+        }
+        if (!Repositories.get().applyChanges(changes)) {
+            restore(changes);
+            return false;
+        }
+        return true;
+    }
+}